@@ -0,0 +1,284 @@
+package com.euvatease.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exécuteurs dédiés par charge de travail (webhooks, VIES, lots et reprises VIES, synchronisations de commandes,
+ * ré-analyses TVA, emails, audit), à la place de l'exécuteur @Async par défaut : un service externe lent (VIES, SMTP)
+ * ne sature que son propre pool.
+ * Chaque pool a une file bornée et publie ses métriques Micrometer (executor.*, tag {@code name}) : profondeur de file,
+ * threads actifs, temps d'attente (executor.idle) et d'exécution (executor), tâches rejetées (executor.rejected).
+ * Avec {@code spring.threads.virtual.enabled} sur Java 21+, les pools gardent leurs bornes (concurrence maximale vers
+ * chaque service) mais leurs threads sont virtuels : un appel bloquant ne retient plus de thread plateforme.
+ */
+@Configuration
+public class AsyncConfig {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    public static final String AUDIT_EXECUTOR = "auditExecutor";
+
+    public static final String EMAIL_EXECUTOR = "emailExecutor";
+
+    public static final String ORDER_SYNC_EXECUTOR = "orderSyncExecutor";
+
+    public static final String REANALYSIS_EXECUTOR = "reanalysisExecutor";
+
+    public static final String VIES_BATCH_EXECUTOR = "viesBatchExecutor";
+
+    public static final String VIES_EXECUTOR = "viesExecutor";
+
+    public static final String VIES_RETRY_EXECUTOR = "viesRetryExecutor";
+
+    public static final String WEBHOOK_EXECUTOR = "webhookExecutor";
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Value("${async.audit.queue-capacity:1000}")
+    private int auditQueueCapacity;
+
+    @Value("${async.audit.threads:2}")
+    private int auditThreads;
+
+    @Value("${async.email.queue-capacity:200}")
+    private int emailQueueCapacity;
+
+    @Value("${async.email.threads:2}")
+    private int emailThreads;
+
+    @Value("${async.order-sync.queue-capacity:8}")
+    private int orderSyncQueueCapacity;
+
+    @Value("${async.order-sync.threads:8}")
+    private int orderSyncThreads;
+
+    @Value("${async.reanalysis.queue-capacity:16}")
+    private int reanalysisQueueCapacity;
+
+    @Value("${async.reanalysis.threads:4}")
+    private int reanalysisThreads;
+
+    @Value("${async.vies-batch.queue-capacity:1000}")
+    private int viesBatchQueueCapacity;
+
+    @Value("${async.vies-batch.threads:8}")
+    private int viesBatchThreads;
+
+    @Value("${async.vies.queue-capacity:500}")
+    private int viesQueueCapacity;
+
+    @Value("${async.vies-retry.queue-capacity:100}")
+    private int viesRetryQueueCapacity;
+
+    @Value("${async.vies-retry.threads:4}")
+    private int viesRetryThreads;
+
+    @Value("${async.vies.threads:8}")
+    private int viesThreads;
+
+    @Value("${async.webhooks.queue-capacity:100}")
+    private int webhooksQueueCapacity;
+
+    @Value("${async.webhooks.threads:4}")
+    private int webhooksThreads;
+
+    private boolean virtualThreads;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Journal d'audit : pool saturé, l'appelant écrit lui-même l'entrée (aucune perte)
+     */
+    @Bean(name = AUDIT_EXECUTOR, destroyMethod = "shutdown")
+    @Nonnull
+    public ExecutorService auditExecutor(@Nonnull MeterRegistry registry) {
+        return boundedExecutor(registry, "audit", auditThreads, auditQueueCapacity, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Emails : pool saturé, l'envoi est abandonné (l'alerte reste visible dans le tableau de bord)
+     */
+    @Bean(name = EMAIL_EXECUTOR, destroyMethod = "shutdown")
+    @Nonnull
+    public ExecutorService emailExecutor(@Nonnull MeterRegistry registry) {
+        return boundedExecutor(registry, "email", emailThreads, emailQueueCapacity, new DiscardPolicy("email", registry));
+    }
+
+    /**
+     * Workers de synchronisation des commandes Shopify, partagé par toutes les synchronisations : pool saturé, le worker
+     * est refusé (RejectedExecutionException). Pas de CallerRuns : le thread appelant télécharge les pages que les
+     * workers consomment, il ne peut pas consommer à leur place.
+     */
+    @Bean(name = ORDER_SYNC_EXECUTOR, destroyMethod = "shutdown")
+    @Nonnull
+    public ExecutorService orderSyncExecutor(@Nonnull MeterRegistry registry) {
+        return boundedExecutor(registry, "order-sync", orderSyncThreads, orderSyncQueueCapacity, new AbortPolicy("order-sync", registry));
+    }
+
+    /**
+     * Tranches de ré-analyse TVA, partagé par toutes les ré-analyses : pool saturé, le thread de la requête traite
+     * lui-même la tranche (contre-pression)
+     */
+    @Bean(name = REANALYSIS_EXECUTOR, destroyMethod = "shutdown")
+    @Nonnull
+    public ExecutorService reanalysisExecutor(@Nonnull MeterRegistry registry) {
+        return boundedExecutor(registry, "reanalysis", reanalysisThreads, reanalysisQueueCapacity, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Validations VIES par lot (POST /vat/validate/batch), partagé par toutes les requêtes : pool saturé, le thread
+     * appelant valide lui-même (contre-pression)
+     */
+    @Bean(name = VIES_BATCH_EXECUTOR, destroyMethod = "shutdown")
+    @Nonnull
+    public ExecutorService viesBatchExecutor(@Nonnull MeterRegistry registry) {
+        return boundedExecutor(registry, "vies-batch", viesBatchThreads, viesBatchQueueCapacity, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Validations VIES asynchrones : pool saturé, la tâche est refusée (RejectedExecutionException) sans bloquer
+     * l'ingestion ; l'appelant enregistre la validation comme indisponible pour le job de reprise
+     */
+    @Bean(name = VIES_EXECUTOR, destroyMethod = "shutdown")
+    @Nonnull
+    public ExecutorService viesExecutor(@Nonnull MeterRegistry registry) {
+        return boundedExecutor(registry, "vies", viesThreads, viesQueueCapacity, new AbortPolicy("vies", registry));
+    }
+
+    /**
+     * Reprises VIES planifiées (lots réservés en base) : pool saturé, le thread planifié retente lui-même
+     */
+    @Bean(name = VIES_RETRY_EXECUTOR, destroyMethod = "shutdown")
+    @Nonnull
+    public ExecutorService viesRetryExecutor(@Nonnull MeterRegistry registry) {
+        return boundedExecutor(registry, "vies-retry", viesRetryThreads, viesRetryQueueCapacity, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Traitement des webhooks : pool saturé, le thread de réservation traite lui-même (contre-pression)
+     */
+    @Bean(name = WEBHOOK_EXECUTOR, destroyMethod = "shutdown")
+    @Nonnull
+    public ExecutorService webhookExecutor(@Nonnull MeterRegistry registry) {
+        return boundedExecutor(registry, "webhooks", webhooksThreads, webhooksQueueCapacity, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PostConstruct
+    void resolveThreadingMode() {
+        int javaVersion = Runtime.version().feature();
+        virtualThreads = virtualThreadsEnabled && javaVersion >= 21;
+        if (virtualThreadsEnabled && !virtualThreads) {
+            log.warn("Threads virtuels demandés mais indisponibles sur Java {}: threads plateforme utilisés", javaVersion);
+        }
+        log.info("Exécuteurs async sur threads {}", virtualThreads ? "virtuels" : "plateforme");
+    }
+
+    @Nonnull
+    private ExecutorService boundedExecutor(@Nonnull MeterRegistry registry,
+                                            @Nonnull String name,
+                                            int threads,
+                                            int queueCapacity,
+                                            @Nonnull RejectedExecutionHandler rejectionPolicy) {
+        int poolSize = Math.max(1, threads);
+        ThreadFactory threadFactory = virtualThreads
+            ? new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory()
+            : new CustomizableThreadFactory(name + "-");
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory, rejectionPolicy);
+        executor.allowCoreThreadTimeOut(true);
+
+        return ExecutorServiceMetrics.monitor(registry, executor, name);
+    }
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Refuse la tâche en la comptant : l'appelant reçoit une RejectedExecutionException et décide de son sort
+     */
+    private static final class AbortPolicy implements RejectedExecutionHandler {
+
+        @Nonnull
+        private final String name;
+
+        @Nonnull
+        private final Counter rejected;
+
+        AbortPolicy(@Nonnull String name,
+                    @Nonnull MeterRegistry registry) {
+            this.name = name;
+            this.rejected = Counter.builder("executor.rejected")
+                .description("Tâches refusées, exécuteur saturé")
+                .tag("name", name)
+                .register(registry);
+        }
+
+        @Override
+        public void rejectedExecution(@Nonnull Runnable task,
+                                      @Nonnull ThreadPoolExecutor executor) {
+            rejected.increment();
+            throw new RejectedExecutionException("Exécuteur " + name + " saturé ou arrêté");
+        }
+    }
+
+    /**
+     * Abandonne la tâche rejetée en la comptant et en la journalisant
+     */
+    private static final class DiscardPolicy implements RejectedExecutionHandler {
+
+        @Nonnull
+        private final String name;
+
+        @Nonnull
+        private final Counter rejected;
+
+        DiscardPolicy(@Nonnull String name,
+                      @Nonnull MeterRegistry registry) {
+            this.name = name;
+            this.rejected = Counter.builder("executor.rejected")
+                .description("Tâches abandonnées, exécuteur saturé")
+                .tag("name", name)
+                .register(registry);
+        }
+
+        @Override
+        public void rejectedExecution(@Nonnull Runnable task,
+                                      @Nonnull ThreadPoolExecutor executor) {
+            rejected.increment();
+            if (!executor.isShutdown()) {
+                log.warn("Exécuteur {} saturé ({} tâches en attente): tâche abandonnée", name, executor.getQueue().size());
+            }
+        }
+    }
+}
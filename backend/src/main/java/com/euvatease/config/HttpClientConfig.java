@@ -0,0 +1,155 @@
+package com.euvatease.config;
+
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Client HTTP partagé pour les appels à l'API Shopify (OAuth, commandes, webhooks, facturation), et client dédié à VIES.
+ * Les connexions TLS sont conservées dans un pool borné par boutique (route) et réutilisées d'un appel à l'autre.
+ * VIES a son propre pool, dimensionné pour tous ses appels simultanés : il ne concurrence pas les appels Shopify.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    public static final String VIES_HTTP_CLIENT = "viesHttpClient";
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Value("${http-client.connect-timeout:5000}")
+    private long connectTimeout;
+
+    @Value("${http-client.connection-request-timeout:10000}")
+    private long connectionRequestTimeout;
+
+    @Value("${http-client.idle-timeout:30000}")
+    private long idleTimeout;
+
+    @Value("${http-client.keep-alive:30000}")
+    private long keepAlive;
+
+    @Value("${http-client.max-per-route:10}")
+    private int maxPerRoute;
+
+    @Value("${http-client.max-total:100}")
+    private int maxTotal;
+
+    @Value("${http-client.response-timeout:30000}")
+    private long responseTimeout;
+
+    @Value("${http-client.time-to-live:300000}")
+    private long timeToLive;
+
+    @Value("${vies.http.connection-request-timeout:2000}")
+    private long viesConnectionRequestTimeout;
+
+    @Value("${vies.http.max-connections:40}")
+    private int viesMaxConnections;
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Pool de connexions : une route par domaine de boutique, borné globalement et par route
+     */
+    @Bean(destroyMethod = "close")
+    @Nonnull
+    public PoolingHttpClientConnectionManager httpClientConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxTotal)
+            .setMaxConnPerRoute(maxPerRoute)
+            .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+            // LIFO : les connexions les plus récentes (encore chaudes côté serveur) sont réutilisées en premier
+            .setConnPoolPolicy(PoolReusePolicy.LIFO)
+            .setDefaultSocketConfig(SocketConfig.custom()
+                .setSoTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .setTcpNoDelay(true)
+                .build())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                .setSocketTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .setTimeToLive(TimeValue.ofMilliseconds(timeToLive))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build())
+            .build();
+    }
+
+    /**
+     * Client partagé, thread-safe. Les services ne doivent pas le fermer.
+     * La décompression gzip/deflate est activée par défaut (Accept-Encoding envoyé automatiquement).
+     */
+    @Bean(destroyMethod = "close")
+    @Primary
+    @Nonnull
+    public CloseableHttpClient httpClient(@Nonnull PoolingHttpClientConnectionManager httpClientConnectionManager) {
+        return HttpClients.custom()
+            .setConnectionManager(httpClientConnectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeout))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .setConnectionKeepAlive(TimeValue.ofMilliseconds(keepAlive))
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout))
+            .build();
+    }
+
+    /**
+     * Client VIES : une seule route, au plus vies.http.max-connections connexions. Les validations asynchrones, les lots
+     * et les reprises sont bornés par leurs exécuteurs et quotas ; le reste du pool absorbe les validations interactives
+     * (POST /vat/validate, sur les threads de requête, non bornées). Un bail non obtenu à temps signale une saturation
+     * locale, pas une indisponibilité de VIES : la validation est reportée. Le pool est fermé avec le client.
+     */
+    @Bean(name = VIES_HTTP_CLIENT, destroyMethod = "close")
+    @Nonnull
+    public CloseableHttpClient viesHttpClient() {
+        int maxConnections = Math.max(1, viesMaxConnections);
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnections)
+            .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+            .setConnPoolPolicy(PoolReusePolicy.LIFO)
+            .setDefaultSocketConfig(SocketConfig.custom()
+                .setSoTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .setTcpNoDelay(true)
+                .build())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                .setSocketTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .setTimeToLive(TimeValue.ofMilliseconds(timeToLive))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build())
+            .build();
+
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(viesConnectionRequestTimeout))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .setConnectionKeepAlive(TimeValue.ofMilliseconds(keepAlive))
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout))
+            .build();
+    }
+}
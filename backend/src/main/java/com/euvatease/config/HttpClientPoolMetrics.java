@@ -0,0 +1,99 @@
+package com.euvatease.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Métriques Actuator du pool HTTP partagé : globales et par domaine de boutique (tag {@code route}).
+ * Les routes apparues depuis le dernier passage sont enregistrées périodiquement.
+ */
+@Component
+public class HttpClientPoolMetrics implements MeterBinder {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    private static final String METRIC_PREFIX = "http.client.pool.";
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final PoolingHttpClientConnectionManager httpClientConnectionManager;
+
+    @Nonnull
+    private final Set<String> registeredRoutes = ConcurrentHashMap.newKeySet();
+
+    private volatile MeterRegistry registry;
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    public HttpClientPoolMetrics(@Nonnull PoolingHttpClientConnectionManager httpClientConnectionManager) {
+        this.httpClientConnectionManager = Objects.requireNonNull(httpClientConnectionManager, "httpClientConnectionManager must not be null");
+    }
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void bindTo(@Nonnull MeterRegistry registry) {
+        this.registry = registry;
+        registerGauges(registry, "total", manager -> manager.getTotalStats());
+        registerRoutes();
+    }
+
+    /**
+     * Enregistre les jauges des nouvelles routes (une par domaine contacté)
+     */
+    @Scheduled(fixedDelayString = "${http-client.metrics-refresh-interval:60000}")
+    public void registerRoutes() {
+        MeterRegistry current = registry;
+        if (current == null) {
+            return;
+        }
+        for (HttpRoute route : httpClientConnectionManager.getRoutes()) {
+            String host = route.getTargetHost().getHostName();
+            if (registeredRoutes.add(host)) {
+                registerGauges(current, host, manager -> manager.getStats(route));
+            }
+        }
+    }
+
+    private void registerGauges(@Nonnull MeterRegistry registry,
+                                @Nonnull String route,
+                                @Nonnull Function<PoolingHttpClientConnectionManager, PoolStats> stats) {
+        Gauge.builder(METRIC_PREFIX + "leased", httpClientConnectionManager, m -> stats.apply(m).getLeased())
+            .description("Connexions HTTP en cours d'utilisation")
+            .tag("route", route)
+            .register(registry);
+        Gauge.builder(METRIC_PREFIX + "available", httpClientConnectionManager, m -> stats.apply(m).getAvailable())
+            .description("Connexions HTTP inactives réutilisables")
+            .tag("route", route)
+            .register(registry);
+        Gauge.builder(METRIC_PREFIX + "pending", httpClientConnectionManager, m -> stats.apply(m).getPending())
+            .description("Requêtes en attente d'une connexion HTTP")
+            .tag("route", route)
+            .register(registry);
+        Gauge.builder(METRIC_PREFIX + "max", httpClientConnectionManager, m -> stats.apply(m).getMax())
+            .description("Connexions HTTP maximum")
+            .tag("route", route)
+            .register(registry);
+    }
+}
@@ -3,6 +3,7 @@ package com.euvatease.config;
 import com.euvatease.security.JwtAuthenticationFilter;
 import com.euvatease.security.ShopifyHmacFilter;
 import jakarta.annotation.Nonnull;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -86,6 +87,8 @@ public class SecurityConfig {
         } else {
             // PRODUCTION MODE: Require authentication for most endpoints
             http.authorizeHttpRequests(auth -> auth
+                    // Fin d'une réponse asynchrone (validation TVA par lot) : la requête d'origine a déjà été autorisée
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                     // Endpoints publics
                     .requestMatchers("/shopify/install", "/shopify/callback", "/shopify/auth").permitAll()
                     .requestMatchers("/shopify/webhooks/**").permitAll()
@@ -1,7 +1,10 @@
 package com.euvatease.controller;
 
+import com.euvatease.entity.WebhookInbox;
 import com.euvatease.service.ShopifyService;
+import com.euvatease.service.WebhookInboxService;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -17,7 +20,9 @@ import java.util.Map;
 import java.util.Objects;
 
 /**
- * Contrôleur pour les webhooks Shopify
+ * Contrôleur pour les webhooks Shopify.
+ * Les livraisons de commandes et remboursements sont seulement vérifiées puis déposées dans la boîte de réception,
+ * qui écarte les doublons (X-Shopify-Webhook-Id).
  */
 @RestController
 @RequestMapping("/shopify/webhooks")
@@ -36,12 +41,17 @@ public class ShopifyWebhookController {
     @Nonnull
     private final ShopifyService shopifyService;
 
+    @Nonnull
+    private final WebhookInboxService webhookInboxService;
+
     //~ ----------------------------------------------------------------------------------------------------------------
     //~ Constructors
     //~ ----------------------------------------------------------------------------------------------------------------
 
-    public ShopifyWebhookController(@Nonnull ShopifyService shopifyService) {
+    public ShopifyWebhookController(@Nonnull ShopifyService shopifyService,
+                                    @Nonnull WebhookInboxService webhookInboxService) {
         this.shopifyService = Objects.requireNonNull(shopifyService, "shopifyService must not be null");
+        this.webhookInboxService = Objects.requireNonNull(webhookInboxService, "webhookInboxService must not be null");
     }
 
     //~ ----------------------------------------------------------------------------------------------------------------
@@ -85,6 +95,7 @@ public class ShopifyWebhookController {
     public ResponseEntity<?> ordersCreate(
             @Nonnull @RequestHeader("X-Shopify-Shop-Domain") String shopDomain,
             @Nonnull @RequestHeader("X-Shopify-Hmac-Sha256") String hmac,
+            @Nullable @RequestHeader(value = "X-Shopify-Webhook-Id", required = false) String webhookId,
             @Nonnull @RequestBody String payload) {
 
         log.info("Webhook orders/create reçu de: {}", shopDomain);
@@ -94,7 +105,7 @@ public class ShopifyWebhookController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        shopifyService.processOrderWebhook(shopDomain, payload);
+        webhookInboxService.append(shopDomain, WebhookInbox.Topic.ORDERS_CREATE, webhookId, payload);
         return ResponseEntity.ok().build();
     }
 
@@ -106,6 +117,7 @@ public class ShopifyWebhookController {
     public ResponseEntity<?> ordersPaid(
             @Nonnull @RequestHeader("X-Shopify-Shop-Domain") String shopDomain,
             @Nonnull @RequestHeader("X-Shopify-Hmac-Sha256") String hmac,
+            @Nullable @RequestHeader(value = "X-Shopify-Webhook-Id", required = false) String webhookId,
             @Nonnull @RequestBody String payload) {
 
         log.info("Webhook orders/paid reçu de: {}", shopDomain);
@@ -114,7 +126,7 @@ public class ShopifyWebhookController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        shopifyService.processOrderWebhook(shopDomain, payload);
+        webhookInboxService.append(shopDomain, WebhookInbox.Topic.ORDERS_PAID, webhookId, payload);
         return ResponseEntity.ok().build();
     }
 
@@ -126,6 +138,7 @@ public class ShopifyWebhookController {
     public ResponseEntity<?> ordersUpdated(
             @Nonnull @RequestHeader("X-Shopify-Shop-Domain") String shopDomain,
             @Nonnull @RequestHeader("X-Shopify-Hmac-Sha256") String hmac,
+            @Nullable @RequestHeader(value = "X-Shopify-Webhook-Id", required = false) String webhookId,
             @Nonnull @RequestBody String payload) {
 
         log.info("Webhook orders/updated reçu de: {}", shopDomain);
@@ -134,7 +147,7 @@ public class ShopifyWebhookController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        shopifyService.processOrderWebhook(shopDomain, payload);
+        webhookInboxService.append(shopDomain, WebhookInbox.Topic.ORDERS_UPDATED, webhookId, payload);
         return ResponseEntity.ok().build();
     }
 
@@ -146,6 +159,7 @@ public class ShopifyWebhookController {
     public ResponseEntity<?> refundsCreate(
             @Nonnull @RequestHeader("X-Shopify-Shop-Domain") String shopDomain,
             @Nonnull @RequestHeader("X-Shopify-Hmac-Sha256") String hmac,
+            @Nullable @RequestHeader(value = "X-Shopify-Webhook-Id", required = false) String webhookId,
             @Nonnull @RequestBody String payload) {
 
         log.info("Webhook refunds/create reçu de: {}", shopDomain);
@@ -154,7 +168,7 @@ public class ShopifyWebhookController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        shopifyService.processRefundWebhook(shopDomain, payload);
+        webhookInboxService.append(shopDomain, WebhookInbox.Topic.REFUNDS_CREATE, webhookId, payload);
         return ResponseEntity.ok().build();
     }
 }
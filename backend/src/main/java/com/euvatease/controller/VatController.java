@@ -9,17 +9,22 @@ import com.euvatease.repository.OrderRepository;
 import com.euvatease.repository.ShopRepository;
 import com.euvatease.repository.VatAlertRepository;
 import com.euvatease.repository.VatValidationRepository;
+import com.euvatease.service.SalesRollupService;
 import com.euvatease.service.ShopifyBillingService;
-import com.euvatease.service.ShopifyService;
+import com.euvatease.service.ShopifyOrderSyncService;
 import com.euvatease.service.VatCalculationService;
+import com.euvatease.service.VatReanalysisService;
 import com.euvatease.service.ViesValidationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -30,12 +35,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -51,6 +62,8 @@ public class VatController {
 
     private static final Logger log = LoggerFactory.getLogger(VatController.class);
 
+    private static final MediaType NDJSON_MEDIA_TYPE = MediaType.parseMediaType("application/x-ndjson");
+
     //~ ----------------------------------------------------------------------------------------------------------------
     //~ Instance fields
     //~ ----------------------------------------------------------------------------------------------------------------
@@ -58,27 +71,42 @@ public class VatController {
     @Nonnull
     private final ShopifyBillingService billingService;
 
+    @Nonnull
+    private final ObjectMapper objectMapper;
+
     @Nonnull
     private final OrderRepository orderRepository;
 
     @Nonnull
-    private final ShopifyService shopifyService;
+    private final SalesRollupService salesRollupService;
 
     @Nonnull
     private final ShopRepository shopRepository;
 
+    @Nonnull
+    private final ShopifyOrderSyncService shopifyOrderSyncService;
+
     @Nonnull
     private final VatAlertRepository vatAlertRepository;
 
     @Nonnull
     private final VatCalculationService vatCalculationService;
 
+    @Nonnull
+    private final VatReanalysisService vatReanalysisService;
+
     @Nonnull
     private final VatValidationRepository vatValidationRepository;
 
     @Nonnull
     private final ViesValidationService viesValidationService;
 
+    @Value("${vies.batch.max-size:5000}")
+    private int batchMaxSize;
+
+    @Value("${vies.batch.timeout:600000}")
+    private long batchTimeout;
+
     //~ ----------------------------------------------------------------------------------------------------------------
     //~ Constructors
     //~ ----------------------------------------------------------------------------------------------------------------
@@ -88,17 +116,23 @@ public class VatController {
                          @Nonnull VatAlertRepository vatAlertRepository,
                          @Nonnull VatValidationRepository vatValidationRepository,
                          @Nonnull VatCalculationService vatCalculationService,
+                         @Nonnull VatReanalysisService vatReanalysisService,
                          @Nonnull ViesValidationService viesValidationService,
-                         @Nonnull ShopifyService shopifyService,
-                         @Nonnull ShopifyBillingService billingService) {
+                         @Nonnull ShopifyOrderSyncService shopifyOrderSyncService,
+                         @Nonnull ShopifyBillingService billingService,
+                         @Nonnull SalesRollupService salesRollupService,
+                         @Nonnull ObjectMapper objectMapper) {
         this.shopRepository = Objects.requireNonNull(shopRepository, "shopRepository must not be null");
         this.orderRepository = Objects.requireNonNull(orderRepository, "orderRepository must not be null");
         this.vatAlertRepository = Objects.requireNonNull(vatAlertRepository, "vatAlertRepository must not be null");
         this.vatValidationRepository = Objects.requireNonNull(vatValidationRepository, "vatValidationRepository must not be null");
         this.vatCalculationService = Objects.requireNonNull(vatCalculationService, "vatCalculationService must not be null");
+        this.vatReanalysisService = Objects.requireNonNull(vatReanalysisService, "vatReanalysisService must not be null");
         this.viesValidationService = Objects.requireNonNull(viesValidationService, "viesValidationService must not be null");
-        this.shopifyService = Objects.requireNonNull(shopifyService, "shopifyService must not be null");
+        this.shopifyOrderSyncService = Objects.requireNonNull(shopifyOrderSyncService, "shopifyOrderSyncService must not be null");
         this.billingService = Objects.requireNonNull(billingService, "billingService must not be null");
+        this.salesRollupService = Objects.requireNonNull(salesRollupService, "salesRollupService must not be null");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper must not be null");
     }
 
     //~ ----------------------------------------------------------------------------------------------------------------
@@ -124,7 +158,8 @@ public class VatController {
     }
 
     /**
-     * Analyse TVA complète pour une période
+     * Analyse TVA complète pour une période ; relancée sur la même période après un échec, elle reprend aux tranches
+     * restantes (avancement en mémoire : perdu au redémarrage ou sur une autre instance)
      * POST /api/vat/analyze
      */
     @Nonnull
@@ -136,7 +171,7 @@ public class VatController {
         LocalDateTime start = LocalDateTime.parse(request.get("startDate"));
         LocalDateTime end = LocalDateTime.parse(request.get("endDate"));
 
-        Map<String, Object> analysis = vatCalculationService.analyzeShopVat(shop, start, end);
+        Map<String, Object> analysis = vatReanalysisService.reanalyze(shop, start, end);
 
         return ResponseEntity.ok(analysis);
     }
@@ -163,6 +198,20 @@ public class VatController {
         ));
     }
 
+    /**
+     * Avancement de l'analyse TVA en cours ou de la dernière analyse
+     * GET /api/vat/analyze/progress
+     */
+    @Nonnull
+    @GetMapping("/analyze/progress")
+    public ResponseEntity<?> getAnalysisProgress(@Nonnull @RequestAttribute("shop") Shop shop) {
+        Map<String, Object> progress = vatReanalysisService.getProgress(shop);
+        if (progress == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(progress);
+    }
+
     /**
      * Tableau de bord principal
      * GET /api/vat/dashboard
@@ -179,10 +228,10 @@ public class VatController {
             LocalDateTime quarterStart = LocalDateTime.of(now.getYear(), (currentQuarter - 1) * 3 + 1, 1, 0, 0);
             LocalDateTime quarterEnd = now;
 
-            // Statistiques des commandes
-            long totalOrders = orderRepository.countOrdersInPeriod(shop, quarterStart, quarterEnd);
-            long vatErrors = orderRepository.countVatErrors(shop);
-            var salesByCountry = orderRepository.getSalesByCountry(shop, quarterStart, quarterEnd);
+            // Statistiques des commandes (agrégats quotidiens)
+            long totalOrders = salesRollupService.countOrdersInPeriod(shop, quarterStart.toLocalDate(), quarterEnd.toLocalDate());
+            long vatErrors = salesRollupService.countVatErrors(shop);
+            var salesByCountry = salesRollupService.getSalesByCountry(shop, quarterStart.toLocalDate(), quarterEnd.toLocalDate());
 
             // Alertes non lues
             long unreadAlerts = vatAlertRepository.countUnreadAlerts(shop);
@@ -425,7 +474,14 @@ public class VatController {
             since = LocalDateTime.now().minusDays(90);
         }
 
-        int synced = shopifyService.syncOrders(shop, since);
+        int synced;
+        try {
+            synced = shopifyOrderSyncService.syncOrders(shop, since);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(503).body(Map.of(
+                "error", "Trop de synchronisations en cours, réessayez dans quelques minutes"
+            ));
+        }
 
         return ResponseEntity.ok(Map.of(
             "synced", synced,
@@ -485,6 +541,58 @@ public class VatController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Valide un lot de numéros de TVA ; les résultats sont renvoyés en NDJSON (un objet par ligne) au fil de l'eau,
+     * depuis les threads de validation (le thread de la requête est libéré)
+     * POST /api/vat/validate/batch
+     */
+    @PostMapping("/validate/batch")
+    @Nonnull
+    public ResponseEntity<ResponseBodyEmitter> validateVatNumbers(
+            @Nonnull @RequestAttribute("shop") Shop shop,
+            @Nonnull @RequestBody Map<String, List<String>> request) throws IOException {
+
+        List<String> vatNumbers = request.get("vatNumbers");
+
+        if (vatNumbers == null || vatNumbers.isEmpty()) {
+            return batchError("Numéros de TVA requis");
+        }
+        if (vatNumbers.size() > batchMaxSize) {
+            return batchError(String.format("Maximum %d numéros de TVA par lot", batchMaxSize));
+        }
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeout);
+        CompletableFuture<Integer> batch = viesValidationService.validateBatch(shop, vatNumbers, result -> {
+            try {
+                // Chaque résultat est envoyé dès qu'il est connu
+                emitter.send(ndjsonLine(result), NDJSON_MEDIA_TYPE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        batch.whenComplete((count, error) -> {
+            if (error == null) {
+                emitter.complete();
+            } else {
+                log.warn("Validation TVA par lot interrompue pour shop={}: {}", shop.getShopifyDomain(), error.getMessage());
+                emitter.completeWithError(error);
+            }
+        });
+        // Client déconnecté ou délai dépassé : les numéros restants ne sont pas validés
+        emitter.onTimeout(() -> batch.cancel(false));
+        emitter.onError(e -> batch.cancel(false));
+
+        return ResponseEntity.ok().contentType(NDJSON_MEDIA_TYPE).body(emitter);
+    }
+
+    @Nonnull
+    private ResponseEntity<ResponseBodyEmitter> batchError(@Nonnull String message) throws IOException {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        emitter.send(Map.of("error", message), MediaType.APPLICATION_JSON);
+        emitter.complete();
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(emitter);
+    }
+
     @Nonnull
     private Map<String, Object> generateStatusMessage(long vatErrors,
                                                       int criticalAlerts,
@@ -547,4 +655,12 @@ public class VatController {
         map.put("vatExempt", order.getVatExempt());
         return map;
     }
+
+    @Nonnull
+    private byte[] ndjsonLine(@Nonnull VatValidationResult result) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(result);
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return line;
+    }
 }
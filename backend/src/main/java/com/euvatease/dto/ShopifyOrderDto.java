@@ -40,6 +40,9 @@ public class ShopifyOrderDto {
     @Nullable
     private BigDecimal totalTax;
 
+    @Nullable
+    private BigDecimal totalShippingPrice;
+
     @Nullable
     private String currency;
 
@@ -88,6 +91,7 @@ public class ShopifyOrderDto {
                            @Nullable BigDecimal totalPrice,
                            @Nullable BigDecimal subtotalPrice,
                            @Nullable BigDecimal totalTax,
+                           @Nullable BigDecimal totalShippingPrice,
                            @Nullable String currency,
                            @Nullable String presentmentCurrency,
                            @Nullable String financialStatus,
@@ -107,6 +111,7 @@ public class ShopifyOrderDto {
         this.totalPrice = totalPrice;
         this.subtotalPrice = subtotalPrice;
         this.totalTax = totalTax;
+        this.totalShippingPrice = totalShippingPrice;
         this.currency = currency;
         this.presentmentCurrency = presentmentCurrency;
         this.financialStatus = financialStatus;
@@ -201,6 +206,15 @@ public class ShopifyOrderDto {
         this.totalTax = totalTax;
     }
 
+    @Nullable
+    public BigDecimal getTotalShippingPrice() {
+        return totalShippingPrice;
+    }
+
+    public void setTotalShippingPrice(@Nullable BigDecimal totalShippingPrice) {
+        this.totalShippingPrice = totalShippingPrice;
+    }
+
     @Nullable
     public String getCurrency() {
         return currency;
@@ -330,6 +344,9 @@ public class ShopifyOrderDto {
         @Nullable
         private BigDecimal totalTax;
 
+        @Nullable
+        private BigDecimal totalShippingPrice;
+
         @Nullable
         private String currency;
 
@@ -411,6 +428,12 @@ public class ShopifyOrderDto {
             return this;
         }
 
+        @Nonnull
+        public ShopifyOrderDtoBuilder totalShippingPrice(@Nullable BigDecimal totalShippingPrice) {
+            this.totalShippingPrice = totalShippingPrice;
+            return this;
+        }
+
         @Nonnull
         public ShopifyOrderDtoBuilder currency(@Nullable String currency) {
             this.currency = currency;
@@ -480,7 +503,7 @@ public class ShopifyOrderDto {
         @Nonnull
         public ShopifyOrderDto build() {
             return new ShopifyOrderDto(id, orderNumber, email, createdAt, updatedAt, totalPrice, subtotalPrice,
-                    totalTax, currency, presentmentCurrency, financialStatus, fulfillmentStatus, billingAddress,
+                    totalTax, totalShippingPrice, currency, presentmentCurrency, financialStatus, fulfillmentStatus, billingAddress,
                     shippingAddress, customer, taxLines, note, noteAttributes, lineItems);
         }
     }
@@ -826,6 +849,9 @@ public class ShopifyOrderDto {
         @Nullable
         private List<String> taxExemptions;
 
+        @Nullable
+        private List<MetafieldDto> metafields;
+
         //~ ----------------------------------------------------------------------------------------------------------------
         //~ Constructors
         //~ ----------------------------------------------------------------------------------------------------------------
@@ -839,7 +865,8 @@ public class ShopifyOrderDto {
                            @Nullable String lastName,
                            @Nullable String phone,
                            @Nullable Boolean taxExempt,
-                           @Nullable List<String> taxExemptions) {
+                           @Nullable List<String> taxExemptions,
+                           @Nullable List<MetafieldDto> metafields) {
             this.id = id;
             this.email = email;
             this.firstName = firstName;
@@ -847,6 +874,7 @@ public class ShopifyOrderDto {
             this.phone = phone;
             this.taxExempt = taxExempt;
             this.taxExemptions = taxExemptions;
+            this.metafields = metafields;
         }
 
         //~ ----------------------------------------------------------------------------------------------------------------
@@ -921,6 +949,15 @@ public class ShopifyOrderDto {
             this.taxExemptions = taxExemptions;
         }
 
+        @Nullable
+        public List<MetafieldDto> getMetafields() {
+            return metafields;
+        }
+
+        public void setMetafields(@Nullable List<MetafieldDto> metafields) {
+            this.metafields = metafields;
+        }
+
         //~ ----------------------------------------------------------------------------------------------------------------
         //~ Nested Classes
         //~ ----------------------------------------------------------------------------------------------------------------
@@ -948,6 +985,9 @@ public class ShopifyOrderDto {
             @Nullable
             private List<String> taxExemptions;
 
+            @Nullable
+            private List<MetafieldDto> metafields;
+
             @Nonnull
             public CustomerDtoBuilder id(@Nullable String id) {
                 this.id = id;
@@ -990,9 +1030,15 @@ public class ShopifyOrderDto {
                 return this;
             }
 
+            @Nonnull
+            public CustomerDtoBuilder metafields(@Nullable List<MetafieldDto> metafields) {
+                this.metafields = metafields;
+                return this;
+            }
+
             @Nonnull
             public CustomerDto build() {
-                return new CustomerDto(id, email, firstName, lastName, phone, taxExempt, taxExemptions);
+                return new CustomerDto(id, email, firstName, lastName, phone, taxExempt, taxExemptions, metafields);
             }
         }
     }
@@ -1209,6 +1255,89 @@ public class ShopifyOrderDto {
         }
     }
 
+    public static class MetafieldDto {
+
+        //~ ----------------------------------------------------------------------------------------------------------------
+        //~ Instance fields
+        //~ ----------------------------------------------------------------------------------------------------------------
+
+        @Nullable
+        private String key;
+
+        @Nullable
+        private String value;
+
+        //~ ----------------------------------------------------------------------------------------------------------------
+        //~ Constructors
+        //~ ----------------------------------------------------------------------------------------------------------------
+
+        public MetafieldDto() {
+        }
+
+        public MetafieldDto(@Nullable String key,
+                            @Nullable String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        //~ ----------------------------------------------------------------------------------------------------------------
+        //~ Methods
+        //~ ----------------------------------------------------------------------------------------------------------------
+
+        @Nonnull
+        public static MetafieldDtoBuilder builder() {
+            return new MetafieldDtoBuilder();
+        }
+
+        @Nullable
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(@Nullable String key) {
+            this.key = key;
+        }
+
+        @Nullable
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(@Nullable String value) {
+            this.value = value;
+        }
+
+        //~ ----------------------------------------------------------------------------------------------------------------
+        //~ Nested Classes
+        //~ ----------------------------------------------------------------------------------------------------------------
+
+        public static class MetafieldDtoBuilder {
+
+            @Nullable
+            private String key;
+
+            @Nullable
+            private String value;
+
+            @Nonnull
+            public MetafieldDtoBuilder key(@Nullable String key) {
+                this.key = key;
+                return this;
+            }
+
+            @Nonnull
+            public MetafieldDtoBuilder value(@Nullable String value) {
+                this.value = value;
+                return this;
+            }
+
+            @Nonnull
+            public MetafieldDto build() {
+                return new MetafieldDto(key, value);
+            }
+        }
+    }
+
     public static class LineItemDto {
 
         //~ ----------------------------------------------------------------------------------------------------------------
@@ -152,6 +152,10 @@ public class Order {
     @Nullable
     private String rawData;
 
+    @Column(name = "shopify_updated_at")
+    @Nullable
+    private LocalDateTime shopifyUpdatedAt;
+
     @Column(name = "created_at")
     @Nullable
     private LocalDateTime createdAt;
@@ -197,6 +201,7 @@ public class Order {
                  @Nullable Boolean includedInOssReport,
                  @Nullable Long ossReportId,
                  @Nullable String rawData,
+                 @Nullable LocalDateTime shopifyUpdatedAt,
                  @Nullable LocalDateTime createdAt,
                  @Nullable LocalDateTime updatedAt) {
         this.id = id;
@@ -229,6 +234,7 @@ public class Order {
         this.includedInOssReport = includedInOssReport;
         this.ossReportId = ossReportId;
         this.rawData = rawData;
+        this.shopifyUpdatedAt = shopifyUpdatedAt;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
     }
@@ -361,6 +367,11 @@ public class Order {
         return shopifyOrderId;
     }
 
+    @Nullable
+    public LocalDateTime getShopifyUpdatedAt() {
+        return shopifyUpdatedAt;
+    }
+
     @Nullable
     public BigDecimal getSubtotalAmount() {
         return subtotalAmount;
@@ -497,6 +508,10 @@ public class Order {
         this.shopifyOrderId = Objects.requireNonNull(shopifyOrderId, "shopifyOrderId must not be null");
     }
 
+    public void setShopifyUpdatedAt(@Nullable LocalDateTime shopifyUpdatedAt) {
+        this.shopifyUpdatedAt = shopifyUpdatedAt;
+    }
+
     public void setSubtotalAmount(@Nullable BigDecimal subtotalAmount) {
         this.subtotalAmount = subtotalAmount;
     }
@@ -671,6 +686,9 @@ public class Order {
         @Nullable
         private String rawData;
 
+        @Nullable
+        private LocalDateTime shopifyUpdatedAt;
+
         @Nullable
         private LocalDateTime createdAt;
 
@@ -694,7 +712,7 @@ public class Order {
                     shippingAmount, taxAmount, currency, appliedVatRate, expectedVatRate, calculatedVatAmount,
                     vatDifference, hasVatError, vatErrorType, vatExempt, vatExemptReason, financialStatus,
                     fulfillmentStatus, isRefunded, refundAmount, includedInOssReport, ossReportId, rawData,
-                    createdAt, updatedAt);
+                    shopifyUpdatedAt, createdAt, updatedAt);
         }
 
         @Nonnull
@@ -835,6 +853,12 @@ public class Order {
             return this;
         }
 
+        @Nonnull
+        public OrderBuilder shopifyUpdatedAt(@Nullable LocalDateTime shopifyUpdatedAt) {
+            this.shopifyUpdatedAt = shopifyUpdatedAt;
+            return this;
+        }
+
         @Nonnull
         public OrderBuilder subtotalAmount(@Nullable BigDecimal subtotalAmount) {
             this.subtotalAmount = subtotalAmount;
@@ -0,0 +1,90 @@
+package com.euvatease.entity;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running total of a shop's cross-border EU sales for one calendar year.
+ * Rows are written by atomic upserts in {@code OssThresholdTotalRepository}, never through the persistence context.
+ */
+@Entity
+@Table(name = "oss_threshold_totals")
+public class OssThresholdTotal {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "shop_id", nullable = false)
+    private Shop shop;
+
+    @Column(name = "year", nullable = false)
+    private Integer year;
+
+    @Column(name = "eu_sales", nullable = false, precision = 14, scale = 2)
+    private BigDecimal euSales;
+
+    @Column(name = "reconciled_at")
+    private LocalDateTime reconciledAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    public OssThresholdTotal() {
+    }
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Nullable
+    public Long getId() {
+        return id;
+    }
+
+    @Nonnull
+    public Shop getShop() {
+        return shop;
+    }
+
+    @Nonnull
+    public Integer getYear() {
+        return year;
+    }
+
+    @Nonnull
+    public BigDecimal getEuSales() {
+        return euSales;
+    }
+
+    @Nullable
+    public LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+
+    @Nullable
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,106 @@
+package com.euvatease.entity;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Daily order rollup for one shop and one customer country, read by the dashboard.
+ * Rows are written by atomic upserts in {@code ShopCountryDailyStatsRepository}, never through the persistence context.
+ */
+@Entity
+@Table(name = "shop_country_daily_stats")
+public class ShopCountryDailyStats {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "shop_id", nullable = false)
+    private Shop shop;
+
+    @Column(name = "country_code", nullable = false, length = 2)
+    private String countryCode;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "orders_count", nullable = false)
+    private Integer ordersCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "tax_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal taxAmount;
+
+    @Column(name = "vat_errors", nullable = false)
+    private Integer vatErrors;
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    public ShopCountryDailyStats() {
+    }
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Nullable
+    public Long getId() {
+        return id;
+    }
+
+    @Nonnull
+    public Shop getShop() {
+        return shop;
+    }
+
+    @Nonnull
+    public String getCountryCode() {
+        return countryCode;
+    }
+
+    @Nonnull
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    @Nonnull
+    public Integer getOrdersCount() {
+        return ordersCount;
+    }
+
+    @Nonnull
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    @Nonnull
+    public BigDecimal getTaxAmount() {
+        return taxAmount;
+    }
+
+    @Nonnull
+    public Integer getVatErrors() {
+        return vatErrors;
+    }
+}
@@ -14,6 +14,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import java.time.LocalDateTime;
@@ -27,7 +28,8 @@ public class VatValidation {
     //~ ----------------------------------------------------------------------------------------------------------------
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vat_validations_seq")
+    @SequenceGenerator(name = "vat_validations_seq", sequenceName = "vat_validations_id_seq", allocationSize = 50)
     @Nullable
     private Long id;
 
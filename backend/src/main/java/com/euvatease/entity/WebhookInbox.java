@@ -0,0 +1,162 @@
+package com.euvatease.entity;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * A verified Shopify webhook delivery waiting to be (or already) processed.
+ * Rows are appended and claimed by native statements in {@code WebhookInboxRepository}, never through the persistence context.
+ */
+@Entity
+@Table(name = "webhook_inbox")
+public class WebhookInbox {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "shop_domain", nullable = false)
+    private String shopDomain;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "topic", nullable = false, length = 50)
+    private Topic topic;
+
+    @Column(name = "webhook_id", length = 100)
+    private String webhookId;
+
+    @Column(name = "order_id", length = 50)
+    private String orderId;
+
+    @Column(name = "order_updated_at")
+    private LocalDateTime orderUpdatedAt;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    public WebhookInbox() {
+    }
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Nullable
+    public Long getId() {
+        return id;
+    }
+
+    @Nonnull
+    public String getShopDomain() {
+        return shopDomain;
+    }
+
+    @Nonnull
+    public Topic getTopic() {
+        return topic;
+    }
+
+    @Nullable
+    public String getWebhookId() {
+        return webhookId;
+    }
+
+    @Nullable
+    public String getOrderId() {
+        return orderId;
+    }
+
+    @Nullable
+    public LocalDateTime getOrderUpdatedAt() {
+        return orderUpdatedAt;
+    }
+
+    @Nonnull
+    public String getPayload() {
+        return payload;
+    }
+
+    @Nonnull
+    public Status getStatus() {
+        return status;
+    }
+
+    @Nonnull
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    @Nullable
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Nonnull
+    public LocalDateTime getReceivedAt() {
+        return receivedAt;
+    }
+
+    @Nonnull
+    public LocalDateTime getAvailableAt() {
+        return availableAt;
+    }
+
+    @Nullable
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    public enum Status {
+        PENDING,
+        DONE,
+        FAILED
+    }
+
+    public enum Topic {
+        ORDERS_CREATE,
+        ORDERS_PAID,
+        ORDERS_UPDATED,
+        REFUNDS_CREATE
+    }
+}
@@ -4,17 +4,25 @@ import com.euvatease.entity.Order;
 import com.euvatease.entity.Shop;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -23,6 +31,21 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     //~ Methods
     //~ ----------------------------------------------------------------------------------------------------------------
 
+    @Query("SELECT o.customerCountryCode AS countryCode, o.expectedVatRate AS vatRate, COUNT(o) AS ordersCount, " +
+           "SUM(o.subtotalAmount) AS taxableAmount, SUM(o.calculatedVatAmount) AS vatAmount, " +
+           "SUM(CASE WHEN o.isB2b = true THEN 1 ELSE 0 END) AS b2bOrders, " +
+           "SUM(CASE WHEN o.vatExempt = true THEN 1 ELSE 0 END) AS exemptOrders " +
+           "FROM Order o WHERE o.shop = :shop AND o.orderDate BETWEEN :start AND :end AND o.includedInOssReport = false " +
+           "AND o.customerCountryCode IN :euCountries AND o.customerCountryCode <> :homeCountry " +
+           "AND (o.isB2b IS NULL OR o.isB2b = false OR o.vatExempt IS NULL OR o.vatExempt = false) " +
+           "GROUP BY o.customerCountryCode, o.expectedVatRate")
+    @Nonnull
+    List<OssLineAggregate> aggregateOrdersForOssReport(@Nonnull @Param("shop") Shop shop,
+                                                       @Nonnull @Param("homeCountry") String homeCountry,
+                                                       @Nonnull @Param("euCountries") Collection<String> euCountries,
+                                                       @Nonnull @Param("start") LocalDateTime start,
+                                                       @Nonnull @Param("end") LocalDateTime end);
+
     @Query("SELECT COUNT(o) FROM Order o WHERE o.shop = :shop AND o.isB2b = true AND o.orderDate BETWEEN :start AND :end")
     long countB2bOrders(@Nonnull @Param("shop") Shop shop,
                         @Nonnull @Param("start") LocalDateTime start,
@@ -68,6 +91,15 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Optional<Order> findByShopAndShopifyOrderId(@Nonnull Shop shop,
                                                 @Nonnull String shopifyOrderId);
 
+    /**
+     * Commande verrouillée jusqu'à la fin de la transaction (deux versions d'une même commande ne s'écrivent pas en même temps)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.shop = :shop AND o.shopifyOrderId = :shopifyOrderId")
+    @Nonnull
+    Optional<Order> findForUpdate(@Nonnull @Param("shop") Shop shop,
+                                  @Nonnull @Param("shopifyOrderId") String shopifyOrderId);
+
     @Query("SELECT DISTINCT o.customerCountryCode FROM Order o WHERE o.shop = :shop AND o.orderDate BETWEEN :start AND :end")
     @Nonnull
     List<String> findDistinctCountries(@Nonnull @Param("shop") Shop shop,
@@ -80,6 +112,12 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
                                        @Nonnull @Param("start") LocalDateTime start,
                                        @Nonnull @Param("end") LocalDateTime end);
 
+    @Query("SELECT o FROM Order o WHERE o.shop = :shop AND o.orderDate >= :start AND o.orderDate < :end")
+    @Nonnull
+    List<Order> findOrdersForReanalysis(@Nonnull @Param("shop") Shop shop,
+                                        @Nonnull @Param("start") LocalDateTime start,
+                                        @Nonnull @Param("end") LocalDateTime end);
+
     @Query("SELECT o FROM Order o WHERE o.shop = :shop AND o.hasVatError = true ORDER BY o.orderDate DESC")
     @Nonnull
     List<Order> findRecentVatErrors(@Nonnull @Param("shop") Shop shop,
@@ -93,11 +131,37 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
                                      @Nonnull @Param("start") LocalDateTime start,
                                      @Nonnull @Param("end") LocalDateTime end);
 
-    @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.shop = :shop AND o.customerCountryCode != :homeCountry AND o.orderDate >= :yearStart")
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.includedInOssReport = true, o.ossReportId = :reportId " +
+           "WHERE o.shop = :shop AND o.orderDate BETWEEN :start AND :end AND o.includedInOssReport = false " +
+           "AND o.customerCountryCode IN :euCountries AND o.customerCountryCode <> :homeCountry " +
+           "AND (o.isB2b IS NULL OR o.isB2b = false OR o.vatExempt IS NULL OR o.vatExempt = false)")
+    int markIncludedInOssReport(@Nonnull @Param("shop") Shop shop,
+                                @Nonnull @Param("homeCountry") String homeCountry,
+                                @Nonnull @Param("euCountries") Collection<String> euCountries,
+                                @Nonnull @Param("start") LocalDateTime start,
+                                @Nonnull @Param("end") LocalDateTime end,
+                                @Nonnull @Param("reportId") Long reportId);
+
+    @Query("SELECT o FROM Order o WHERE o.shop = :shop AND o.orderDate BETWEEN :start AND :end AND o.includedInOssReport = false")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Nonnull
+    Stream<Order> streamOrdersForOssReport(@Nonnull @Param("shop") Shop shop,
+                                           @Nonnull @Param("start") LocalDateTime start,
+                                           @Nonnull @Param("end") LocalDateTime end);
+
+    @Query("SELECT SUM(o.totalAmount - COALESCE(o.refundAmount, 0)) FROM Order o WHERE o.shop = :shop " +
+           "AND o.customerCountryCode IN :euCountries AND o.customerCountryCode <> :homeCountry " +
+           "AND o.orderDate >= :yearStart AND o.orderDate < :yearEnd")
     @Nullable
     BigDecimal sumEuSalesForOssThreshold(@Nonnull @Param("shop") Shop shop,
                                          @Nonnull @Param("homeCountry") String homeCountry,
-                                         @Nonnull @Param("yearStart") LocalDateTime yearStart);
+                                         @Nonnull @Param("euCountries") Collection<String> euCountries,
+                                         @Nonnull @Param("yearStart") LocalDateTime yearStart,
+                                         @Nonnull @Param("yearEnd") LocalDateTime yearEnd);
 
     @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.shop = :shop AND o.orderDate BETWEEN :start AND :end AND o.isRefunded = false")
     @Nullable
@@ -0,0 +1,37 @@
+package com.euvatease.repository;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection d'agrégat OSS : une ligne par pays de consommation et taux de TVA attendu.
+ */
+public interface OssLineAggregate {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Nullable
+    Long getB2bOrders();
+
+    @Nonnull
+    String getCountryCode();
+
+    @Nullable
+    Long getExemptOrders();
+
+    @Nonnull
+    Long getOrdersCount();
+
+    @Nullable
+    BigDecimal getTaxableAmount();
+
+    @Nullable
+    BigDecimal getVatAmount();
+
+    @Nullable
+    BigDecimal getVatRate();
+}
@@ -0,0 +1,67 @@
+package com.euvatease.repository;
+
+import com.euvatease.entity.OssThresholdTotal;
+import com.euvatease.entity.Shop;
+import jakarta.annotation.Nonnull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+@Repository
+public interface OssThresholdTotalRepository extends JpaRepository<OssThresholdTotal, Long> {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Ajoute un montant au cumul existant ; renvoie 0 si la ligne n'existe pas encore (elle doit alors être recalculée)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE oss_threshold_totals SET eu_sales = eu_sales + :amount, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE shop_id = :shopId AND year = :year",
+           nativeQuery = true)
+    int addEuSales(@Nonnull @Param("shopId") Long shopId,
+                   @Param("year") int year,
+                   @Nonnull @Param("amount") BigDecimal amount);
+
+    @Nonnull
+    Optional<OssThresholdTotal> findByShopAndYear(@Nonnull Shop shop,
+                                                  @Nonnull Integer year);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO oss_threshold_totals (shop_id, year, eu_sales, updated_at) " +
+                   "VALUES (:shopId, :year, 0, CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT (shop_id, year) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Nonnull @Param("shopId") Long shopId,
+                       @Param("year") int year);
+
+    /**
+     * Verrouille la ligne du cumul jusqu'à la fin de la transaction appelante
+     */
+    @Query(value = "SELECT eu_sales FROM oss_threshold_totals WHERE shop_id = :shopId AND year = :year FOR UPDATE",
+           nativeQuery = true)
+    @Nonnull
+    BigDecimal lockEuSales(@Nonnull @Param("shopId") Long shopId,
+                           @Param("year") int year);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO oss_threshold_totals (shop_id, year, eu_sales, reconciled_at, updated_at) " +
+                   "VALUES (:shopId, :year, :amount, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT (shop_id, year) DO UPDATE " +
+                   "SET eu_sales = EXCLUDED.eu_sales, reconciled_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int setEuSales(@Nonnull @Param("shopId") Long shopId,
+                   @Param("year") int year,
+                   @Nonnull @Param("amount") BigDecimal amount);
+}
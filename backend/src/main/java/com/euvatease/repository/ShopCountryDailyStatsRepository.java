@@ -0,0 +1,59 @@
+package com.euvatease.repository;
+
+import com.euvatease.entity.Shop;
+import com.euvatease.entity.ShopCountryDailyStats;
+import jakarta.annotation.Nonnull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ShopCountryDailyStatsRepository extends JpaRepository<ShopCountryDailyStats, Long> {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO shop_country_daily_stats " +
+                   "(shop_id, country_code, stat_date, orders_count, total_amount, tax_amount, vat_errors) " +
+                   "VALUES (:shopId, :countryCode, :statDate, :orders, :totalAmount, :taxAmount, :vatErrors) " +
+                   "ON CONFLICT (shop_id, stat_date, country_code) DO UPDATE SET " +
+                   "orders_count = shop_country_daily_stats.orders_count + EXCLUDED.orders_count, " +
+                   "total_amount = shop_country_daily_stats.total_amount + EXCLUDED.total_amount, " +
+                   "tax_amount = shop_country_daily_stats.tax_amount + EXCLUDED.tax_amount, " +
+                   "vat_errors = shop_country_daily_stats.vat_errors + EXCLUDED.vat_errors",
+           nativeQuery = true)
+    int addStats(@Nonnull @Param("shopId") Long shopId,
+                 @Nonnull @Param("countryCode") String countryCode,
+                 @Nonnull @Param("statDate") LocalDate statDate,
+                 @Param("orders") int orders,
+                 @Nonnull @Param("totalAmount") BigDecimal totalAmount,
+                 @Nonnull @Param("taxAmount") BigDecimal taxAmount,
+                 @Param("vatErrors") int vatErrors);
+
+    @Query("SELECT COALESCE(SUM(s.ordersCount), 0) FROM ShopCountryDailyStats s " +
+           "WHERE s.shop = :shop AND s.statDate BETWEEN :start AND :end")
+    long countOrdersInPeriod(@Nonnull @Param("shop") Shop shop,
+                             @Nonnull @Param("start") LocalDate start,
+                             @Nonnull @Param("end") LocalDate end);
+
+    @Query("SELECT COALESCE(SUM(s.vatErrors), 0) FROM ShopCountryDailyStats s WHERE s.shop = :shop")
+    long countVatErrors(@Nonnull @Param("shop") Shop shop);
+
+    @Query("SELECT s.countryCode, SUM(s.ordersCount), SUM(s.totalAmount), SUM(s.taxAmount) " +
+           "FROM ShopCountryDailyStats s WHERE s.shop = :shop AND s.statDate BETWEEN :start AND :end " +
+           "GROUP BY s.countryCode HAVING SUM(s.ordersCount) > 0 ORDER BY SUM(s.totalAmount) DESC")
+    @Nonnull
+    List<Object[]> getSalesByCountry(@Nonnull @Param("shop") Shop shop,
+                                     @Nonnull @Param("start") LocalDate start,
+                                     @Nonnull @Param("end") LocalDate end);
+}
@@ -9,8 +9,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +23,24 @@ public interface VatValidationRepository extends JpaRepository<VatValidation, Lo
     //~ Methods
     //~ ----------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Réserve jusqu'à {@code limit} validations à retenter en repoussant leur échéance à {@code leaseUntil} :
+     * les lignes verrouillées par un autre worker (ou une autre instance) sont ignorées, et une ligne réservée
+     * n'est plus proposée avant l'expiration du bail.
+     */
+    @Transactional
+    @Query(value = "UPDATE vat_validations SET next_retry_at = :leaseUntil " +
+                   "WHERE id IN (SELECT id FROM vat_validations WHERE validation_status = 'UNAVAILABLE' " +
+                   "AND retry_count < :maxRetries AND next_retry_at <= :now " +
+                   "ORDER BY next_retry_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                   "RETURNING id",
+           nativeQuery = true)
+    @Nonnull
+    List<Long> claimRetries(@Param("maxRetries") int maxRetries,
+                            @Nonnull @Param("now") LocalDateTime now,
+                            @Nonnull @Param("leaseUntil") LocalDateTime leaseUntil,
+                            @Param("limit") int limit);
+
     @Query("SELECT COUNT(v) FROM VatValidation v WHERE v.shop = :shop AND v.validationStatus = 'INVALID'")
     long countInvalidVatNumbers(@Nonnull @Param("shop") Shop shop);
 
@@ -70,8 +90,7 @@ public interface VatValidationRepository extends JpaRepository<VatValidation, Lo
     Page<VatValidation> findRecentValidations(@Nonnull @Param("shop") Shop shop,
                                               @Nonnull Pageable pageable);
 
-    @Query("SELECT v FROM VatValidation v WHERE v.validationStatus = 'UNAVAILABLE' AND v.retryCount < :maxRetries AND v.nextRetryAt <= :now")
+    @Query("SELECT DISTINCT v.orderId FROM VatValidation v WHERE v.orderId IN :orderIds AND v.validationStatus = 'VALID'")
     @Nonnull
-    List<VatValidation> findRetryableValidations(@Param("maxRetries") int maxRetries,
-                                                 @Nonnull @Param("now") LocalDateTime now);
+    List<Long> findValidatedOrderIds(@Nonnull @Param("orderIds") Collection<Long> orderIds);
 }
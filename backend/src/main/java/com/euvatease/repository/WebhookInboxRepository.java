@@ -0,0 +1,95 @@
+package com.euvatease.repository;
+
+import com.euvatease.entity.WebhookInbox;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WebhookInboxRepository extends JpaRepository<WebhookInbox, Long> {
+
+    //~ ----------------------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Ajoute une livraison, sauf si elle a déjà été reçue (même {@code webhookId}) ou si une version au moins aussi
+     * récente de la commande est déjà enregistrée.
+     * La livraison devient disponible après {@code windowSeconds}, ou en même temps que la première livraison encore en
+     * attente de la même commande : les livraisons d'une même fenêtre sont réservées ensemble et fusionnées.
+     *
+     * @return 1 si la livraison a été ajoutée, 0 sinon
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO webhook_inbox (shop_domain, topic, webhook_id, order_id, order_updated_at, payload, available_at) " +
+                   "SELECT :shopDomain, :topic, CAST(:webhookId AS VARCHAR), CAST(:orderId AS VARCHAR), " +
+                   "CAST(:orderUpdatedAt AS TIMESTAMP), :payload, " +
+                   "COALESCE((SELECT MIN(available_at) FROM webhook_inbox WHERE shop_domain = :shopDomain " +
+                   "AND order_id = CAST(:orderId AS VARCHAR) AND status = 'PENDING' AND attempts = 0), " +
+                   "CURRENT_TIMESTAMP + make_interval(secs => :windowSeconds)) " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM webhook_inbox WHERE shop_domain = :shopDomain " +
+                   "AND order_id = CAST(:orderId AS VARCHAR) AND order_updated_at >= CAST(:orderUpdatedAt AS TIMESTAMP)) " +
+                   "ON CONFLICT (shop_domain, webhook_id) DO NOTHING",
+           nativeQuery = true)
+    int append(@Nonnull @Param("shopDomain") String shopDomain,
+               @Nonnull @Param("topic") String topic,
+               @Nullable @Param("webhookId") String webhookId,
+               @Nullable @Param("orderId") String orderId,
+               @Nullable @Param("orderUpdatedAt") LocalDateTime orderUpdatedAt,
+               @Nonnull @Param("payload") String payload,
+               @Param("windowSeconds") int windowSeconds);
+
+    /**
+     * Réserve jusqu'à {@code limit} lignes disponibles en repoussant leur disponibilité de {@code leaseSeconds} :
+     * les lignes verrouillées par un autre worker (ou une autre instance) sont ignorées.
+     * Une ligne réservée dont le worker s'arrête redevient disponible à l'expiration du bail.
+     */
+    @Transactional
+    @Query(value = "UPDATE webhook_inbox SET attempts = attempts + 1, " +
+                   "available_at = CURRENT_TIMESTAMP + make_interval(secs => :leaseSeconds) " +
+                   "WHERE id IN (SELECT id FROM webhook_inbox WHERE status = 'PENDING' AND available_at <= CURRENT_TIMESTAMP " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                   "RETURNING id",
+           nativeQuery = true)
+    @Nonnull
+    List<Long> claimBatch(@Param("limit") int limit,
+                          @Param("leaseSeconds") int leaseSeconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE webhook_inbox SET status = 'DONE', processed_at = CURRENT_TIMESTAMP, last_error = NULL " +
+                   "WHERE id IN (:ids)",
+           nativeQuery = true)
+    int markDone(@Nonnull @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM webhook_inbox WHERE status = 'DONE' AND processed_at < :before",
+           nativeQuery = true)
+    int purgeProcessed(@Nonnull @Param("before") LocalDateTime before);
+
+    /**
+     * Replanifie une ligne en échec, ou la passe en FAILED si le nombre de tentatives est atteint
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE webhook_inbox SET last_error = :error, " +
+                   "status = CASE WHEN attempts >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END, " +
+                   "available_at = CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds) " +
+                   "WHERE id = :id",
+           nativeQuery = true)
+    int reschedule(@Nonnull @Param("id") Long id,
+                   @Nullable @Param("error") String error,
+                   @Param("maxAttempts") int maxAttempts,
+                   @Param("delaySeconds") int delaySeconds);
+}
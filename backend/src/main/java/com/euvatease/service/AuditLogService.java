@@ -1,5 +1,6 @@
 package com.euvatease.service;
 
+import com.euvatease.config.AsyncConfig;
 import com.euvatease.entity.AuditLog;
 import com.euvatease.entity.Shop;
 import com.euvatease.repository.AuditLogRepository;
@@ -41,7 +42,7 @@ public class AuditLogService {
     //~ Methods
     //~ ------------------------------------------------------------------------------------------------
 
-    @Async
+    @Async(AsyncConfig.AUDIT_EXECUTOR)
     @Transactional
     public void log(@Nonnull Shop shop,
                     @Nonnull AuditLog.ActionType actionType,
@@ -61,7 +62,7 @@ public class AuditLogService {
             shop.getShopifyDomain(), actionType, entityType, entityId);
     }
 
-    @Async
+    @Async(AsyncConfig.AUDIT_EXECUTOR)
     @Transactional
     public void logWithRequest(@Nonnull Shop shop,
                                @Nonnull AuditLog.ActionType actionType,
@@ -79,7 +80,7 @@ public class AuditLogService {
         auditLogRepository.save(auditLog);
     }
 
-    @Async
+    @Async(AsyncConfig.AUDIT_EXECUTOR)
     @Transactional
     public void logWithValues(@Nonnull Shop shop,
                               @Nonnull AuditLog.ActionType actionType,
@@ -1,5 +1,6 @@
 package com.euvatease.service;
 
+import com.euvatease.config.AsyncConfig;
 import com.euvatease.entity.Shop;
 import com.euvatease.entity.VatAlert;
 import com.euvatease.repository.ShopRepository;
@@ -79,7 +80,7 @@ public class EmailService {
     /**
      * Envoie un email d'alerte
      */
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendAlertEmail(@Nonnull Shop shop,
                                @Nonnull VatAlert alert) {
         if (!Boolean.TRUE.equals(shop.getAlertEmailEnabled())) {
@@ -113,7 +114,7 @@ public class EmailService {
     /**
      * Envoie un rappel de déclaration OSS
      */
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendOssReminderEmail(@Nonnull Shop shop,
                                      int quarter,
                                      int year,
@@ -187,7 +188,7 @@ public class EmailService {
     /**
      * Envoie un email de bienvenue
      */
-    @Async
+    @Async(AsyncConfig.EMAIL_EXECUTOR)
     public void sendWelcomeEmail(@Nonnull Shop shop) {
         try {
             Context context = new Context();
@@ -0,0 +1,182 @@
+package com.euvatease.service;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Arithmétique monétaire en virgule fixe : montants en centimes et taux en points de base, portés par des {@code long}.
+ * Les arrondis reproduisent exactement {@code setScale(2, RoundingMode.HALF_UP)} ; une valeur non représentable
+ * (plus de deux décimales ou hors plage) bascule sur le calcul {@link BigDecimal} d'origine.
+ */
+final class Money {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Valeur sentinelle renvoyée quand un {@link BigDecimal} ne tient pas en centièmes exacts
+     */
+    static final long NOT_REPRESENTABLE = Long.MIN_VALUE;
+
+    // Bornes garantissant que centimes x points de base tient dans un long
+    private static final long MAX_BASIS_POINTS = 1_000_000L;
+    private static final long MAX_HUNDREDTHS = 1_000_000_000_000L;
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    private Money() {
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Indique si l'écart entre deux taux (en %) dépasse strictement la tolérance donnée en points de base.
+     * Les taux sont passés déjà convertis par {@link #toBasisPoints} ; les {@link BigDecimal} ne servent qu'au repli
+     * lorsque l'un d'eux vaut {@link #NOT_REPRESENTABLE}.
+     */
+    static boolean exceedsRateTolerance(long appliedBasisPoints,
+                                        long expectedBasisPoints,
+                                        @Nonnull BigDecimal appliedRate,
+                                        @Nonnull BigDecimal expectedRate,
+                                        long toleranceBasisPoints) {
+        if (appliedBasisPoints == NOT_REPRESENTABLE || expectedBasisPoints == NOT_REPRESENTABLE) {
+            return appliedRate.subtract(expectedRate).abs()
+                .compareTo(BigDecimal.valueOf(toleranceBasisPoints, 2)) > 0;
+        }
+        return Math.abs(appliedBasisPoints - expectedBasisPoints) > toleranceBasisPoints;
+    }
+
+    /**
+     * Montant × taux / 100, arrondi HALF_UP au centime
+     */
+    static long percentOf(long cents,
+                          long basisPoints) {
+        long product = Math.multiplyExact(cents, basisPoints);
+        long quotient = product / 10_000;
+        long remainder = product % 10_000;
+        if (Math.abs(remainder) >= 5_000) {
+            quotient += Long.signum(product);
+        }
+        return quotient;
+    }
+
+    /**
+     * Centimes vers montant à deux décimales
+     */
+    @Nonnull
+    static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Taux en % vers points de base (19.00 → 1900), ou {@link #NOT_REPRESENTABLE}
+     */
+    static long toBasisPoints(@Nullable BigDecimal rate) {
+        return toHundredths(rate);
+    }
+
+    /**
+     * Montant vers centimes (12.34 → 1234), ou {@link #NOT_REPRESENTABLE} ; null vaut zéro
+     */
+    static long toCents(@Nullable BigDecimal amount) {
+        return toHundredths(amount);
+    }
+
+    /**
+     * TVA d'un montant à un taux donné en %, à deux décimales HALF_UP.
+     * Équivalent à {@code amount.multiply(rate).divide(100, 2, HALF_UP)}.
+     */
+    @Nonnull
+    static BigDecimal vatAmount(@Nonnull BigDecimal amount,
+                                @Nonnull BigDecimal rate) {
+        long vatCents = vatCents(toCents(amount), toBasisPoints(rate));
+        if (vatCents == NOT_REPRESENTABLE) {
+            return amount.multiply(rate).divide(ONE_HUNDRED, 2, RoundingMode.HALF_UP);
+        }
+        return toAmount(vatCents);
+    }
+
+    /**
+     * TVA en centimes d'un montant en centimes à un taux en points de base, arrondie HALF_UP,
+     * ou {@link #NOT_REPRESENTABLE} si un opérande l'est ou si le taux sort des bornes (repli {@link #vatAmount})
+     */
+    static long vatCents(long cents,
+                         long basisPoints) {
+        if (cents == NOT_REPRESENTABLE || basisPoints == NOT_REPRESENTABLE || Math.abs(basisPoints) > MAX_BASIS_POINTS) {
+            return NOT_REPRESENTABLE;
+        }
+        return percentOf(cents, basisPoints);
+    }
+
+    private static long toHundredths(@Nullable BigDecimal value) {
+        if (value == null) {
+            return 0L;
+        }
+        int scale = value.scale();
+        if (scale < 0 || scale > 2 || value.precision() - scale > 13) {
+            return NOT_REPRESENTABLE;
+        }
+        long hundredths = value.unscaledValue().longValue();
+        if (scale == 0) {
+            hundredths *= 100;
+        } else if (scale == 1) {
+            hundredths *= 10;
+        }
+        return Math.abs(hundredths) <= MAX_HUNDREDTHS ? hundredths : NOT_REPRESENTABLE;
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Somme de montants en centimes. Les montants non représentables sont cumulés à part en {@link BigDecimal}.
+     */
+    static final class Sum {
+
+        private long cents;
+
+        @Nullable
+        private BigDecimal remainder;
+
+        void add(@Nullable BigDecimal amount) {
+            add(toCents(amount), amount);
+        }
+
+        /**
+         * Ajoute un montant déjà converti par {@link Money#toCents} ; amount n'est lu que si la conversion a donné
+         * {@link #NOT_REPRESENTABLE}
+         */
+        void add(long amountCents,
+                 @Nullable BigDecimal amount) {
+            if (amountCents == NOT_REPRESENTABLE) {
+                remainder = remainder == null ? amount : remainder.add(amount);
+            } else {
+                cents = Math.addExact(cents, amountCents);
+            }
+        }
+
+        void add(@Nonnull Sum other) {
+            cents = Math.addExact(cents, other.cents);
+            if (other.remainder != null) {
+                remainder = remainder == null ? other.remainder : remainder.add(other.remainder);
+            }
+        }
+
+        @Nonnull
+        BigDecimal toAmount() {
+            BigDecimal amount = Money.toAmount(cents);
+            return remainder == null ? amount : amount.add(remainder);
+        }
+    }
+}
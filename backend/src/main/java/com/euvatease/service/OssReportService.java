@@ -5,8 +5,8 @@ import com.euvatease.entity.Order;
 import com.euvatease.entity.OssReport;
 import com.euvatease.entity.OssReportLine;
 import com.euvatease.entity.Shop;
-import com.euvatease.repository.EuVatRateRepository;
 import com.euvatease.repository.OrderRepository;
+import com.euvatease.repository.OssLineAggregate;
 import com.euvatease.repository.OssReportLineRepository;
 import com.euvatease.repository.OssReportRepository;
 import com.itextpdf.kernel.colors.ColorConstants;
@@ -21,6 +21,7 @@ import com.itextpdf.layout.properties.UnitValue;
 import com.opencsv.CSVWriter;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -42,6 +43,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service de génération des rapports OSS trimestriels.
@@ -60,6 +62,13 @@ public class OssReportService {
 
     private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
+    // Pays UE
+    private static final Set<String> EU_COUNTRIES = Set.of(
+        "AT", "BE", "BG", "HR", "CY", "CZ", "DK", "EE", "FI", "FR",
+        "DE", "GR", "HU", "IE", "IT", "LV", "LT", "LU", "MT", "NL",
+        "PL", "PT", "RO", "SK", "SI", "ES", "SE"
+    );
+
     //~ ------------------------------------------------------------------------------------------------
     //~ Instance fields
     //~ ------------------------------------------------------------------------------------------------
@@ -68,7 +77,7 @@ public class OssReportService {
     private final AuditLogService auditLogService;
 
     @Nonnull
-    private final EuVatRateRepository euVatRateRepository;
+    private final EntityManager entityManager;
 
     @Nonnull
     private final OrderRepository orderRepository;
@@ -79,10 +88,17 @@ public class OssReportService {
     @Nonnull
     private final OssReportRepository ossReportRepository;
 
+    @Nonnull
+    private final VatRateTable vatRateTable;
+
     @Value("${app.frontend-url:https://app.euvatease.com}")
     @Nonnull
     private String frontendUrl;
 
+    @Value("${oss.report.generation-mode:SQL_AGGREGATE}")
+    @Nonnull
+    private GenerationMode generationMode;
+
     //~ ------------------------------------------------------------------------------------------------
     //~ Constructors
     //~ ------------------------------------------------------------------------------------------------
@@ -90,13 +106,15 @@ public class OssReportService {
     public OssReportService(@Nonnull OssReportRepository ossReportRepository,
                             @Nonnull OssReportLineRepository ossReportLineRepository,
                             @Nonnull OrderRepository orderRepository,
-                            @Nonnull EuVatRateRepository euVatRateRepository,
-                            @Nonnull AuditLogService auditLogService) {
+                            @Nonnull VatRateTable vatRateTable,
+                            @Nonnull AuditLogService auditLogService,
+                            @Nonnull EntityManager entityManager) {
         this.ossReportRepository = Objects.requireNonNull(ossReportRepository, "ossReportRepository must not be null");
         this.ossReportLineRepository = Objects.requireNonNull(ossReportLineRepository, "ossReportLineRepository must not be null");
         this.orderRepository = Objects.requireNonNull(orderRepository, "orderRepository must not be null");
-        this.euVatRateRepository = Objects.requireNonNull(euVatRateRepository, "euVatRateRepository must not be null");
+        this.vatRateTable = Objects.requireNonNull(vatRateTable, "vatRateTable must not be null");
         this.auditLogService = Objects.requireNonNull(auditLogService, "auditLogService must not be null");
+        this.entityManager = Objects.requireNonNull(entityManager, "entityManager must not be null");
     }
 
     //~ ------------------------------------------------------------------------------------------------
@@ -272,7 +290,8 @@ public class OssReportService {
     public OssReport generateReport(@Nonnull Shop shop,
                                     int year,
                                     int quarter) {
-        log.info("Génération rapport OSS: shop={}, période=T{} {}", shop.getShopifyDomain(), quarter, year);
+        log.info("Génération rapport OSS: shop={}, période=T{} {}, mode={}",
+            shop.getShopifyDomain(), quarter, year, generationMode);
 
         // Vérifier si un rapport existe déjà
         Optional<OssReport> existing = ossReportRepository.findByShopAndYearAndQuarter(shop, year, quarter);
@@ -285,14 +304,6 @@ public class OssReportService {
         LocalDateTime periodStart = getQuarterStart(year, quarter);
         LocalDateTime periodEnd = getQuarterEnd(year, quarter);
 
-        // Récupérer les commandes de la période
-        List<Order> orders = orderRepository.findOrdersForOssReport(shop, periodStart, periodEnd);
-
-        // Filtrer uniquement les commandes UE B2C (OSS ne concerne pas B2B exonéré)
-        List<Order> ossOrders = orders.stream()
-            .filter(o -> isOssEligible(o, shop))
-            .collect(Collectors.toList());
-
         // Créer ou mettre à jour le rapport
         OssReport report = existing.orElse(OssReport.builder()
             .shop(shop)
@@ -305,70 +316,48 @@ public class OssReportService {
         report.setGeneratedAt(LocalDateTime.now());
         report.setStatus(OssReport.ReportStatus.GENERATED);
 
-        // Calculer les totaux
-        BigDecimal totalSales = BigDecimal.ZERO;
-        BigDecimal totalVat = BigDecimal.ZERO;
-        int totalOrders = ossOrders.size();
-        int b2bOrders = 0;
-        int b2cOrders = 0;
-        int exemptOrders = 0;
-
-        // Grouper par pays et taux de TVA
-        Map<String, Map<BigDecimal, List<Order>>> ordersByCountryAndRate = new HashMap<>();
-
-        for (Order order : ossOrders) {
-            String country = order.getCustomerCountryCode();
-            BigDecimal vatRate = order.getExpectedVatRate() != null ? order.getExpectedVatRate() : BigDecimal.ZERO;
-
-            ordersByCountryAndRate
-                .computeIfAbsent(country, k -> new HashMap<>())
-                .computeIfAbsent(vatRate, k -> new ArrayList<>())
-                .add(order);
-
-            totalSales = totalSales.add(order.getSubtotalAmount() != null ? order.getSubtotalAmount() : BigDecimal.ZERO);
-            totalVat = totalVat.add(order.getCalculatedVatAmount() != null ? order.getCalculatedVatAmount() : BigDecimal.ZERO);
-
-            if (Boolean.TRUE.equals(order.getIsB2b())) {
-                b2bOrders++;
-            } else {
-                b2cOrders++;
-            }
-
-            if (Boolean.TRUE.equals(order.getVatExempt())) {
-                exemptOrders++;
-            }
-        }
+        // Sauvegarder le rapport pour disposer de son identifiant
+        report = ossReportRepository.save(report);
 
-        report.setTotalSales(totalSales);
-        report.setTotalVat(totalVat);
-        report.setTotalOrders(totalOrders);
-        report.setB2bOrders(b2bOrders);
-        report.setB2cOrders(b2cOrders);
-        report.setExemptOrders(exemptOrders);
-        report.setCountriesCount(ordersByCountryAndRate.size());
+        // Agréger les commandes par pays et taux de TVA
+        ReportAggregate aggregate = switch (generationMode) {
+            case IN_MEMORY -> aggregateInMemory(shop, periodStart, periodEnd);
+            case STREAMING -> aggregateStreaming(shop, periodStart, periodEnd);
+            case SQL_AGGREGATE -> aggregateInDatabase(shop, periodStart, periodEnd);
+        };
+
+        report.setTotalSales(aggregate.totalSales.toAmount());
+        report.setTotalVat(aggregate.totalVat.toAmount());
+        report.setTotalOrders(aggregate.totalOrders);
+        report.setB2bOrders(aggregate.b2bOrders);
+        report.setB2cOrders(aggregate.b2cOrders);
+        report.setExemptOrders(aggregate.exemptOrders);
+        report.setCountriesCount(aggregate.lines.size());
 
-        // Sauvegarder le rapport
         report = ossReportRepository.save(report);
 
         // Supprimer les anciennes lignes si mise à jour
         ossReportLineRepository.deleteByReport(report);
 
         // Créer les lignes du rapport
-        createReportLines(report, ordersByCountryAndRate);
-
-        // Marquer les commandes comme incluses dans le rapport
-        final Long reportId = report.getId();
-        ossOrders.forEach(o -> {
-            o.setIncludedInOssReport(true);
-            o.setOssReportId(reportId);
-        });
-        orderRepository.saveAll(ossOrders);
+        createReportLines(report, aggregate.lines);
+
+        // Marquer les commandes comme incluses dans le rapport, en une seule requête. L'UPDATE réévalue les critères :
+        // une commande arrivée ou modifiée depuis l'agrégation serait marquée sans figurer dans le rapport,
+        // on annule alors toute la génération plutôt que de publier un rapport incohérent.
+        int taggedOrders = markOrdersIncluded(shop, report.getId(), periodStart, periodEnd);
+        if (taggedOrders != aggregate.totalOrders) {
+            throw new RuntimeException(String.format(
+                "Rapport OSS T%d %d: %d commandes agrégées mais %d commandes marquées, commandes modifiées pendant la génération",
+                quarter, year, aggregate.totalOrders, taggedOrders));
+        }
 
         // Audit log
         auditLogService.log(shop, AuditLog.ActionType.REPORT_GENERATED, "OssReport", report.getId(),
-            String.format("Rapport OSS T%d %d généré: %d commandes, %.2f€ TVA", quarter, year, totalOrders, totalVat));
+            String.format("Rapport OSS T%d %d généré: %d commandes, %.2f€ TVA, %d commandes marquées",
+                quarter, year, aggregate.totalOrders, report.getTotalVat(), taggedOrders));
 
-        log.info("Rapport OSS généré: id={}, commandes={}, TVA={}", report.getId(), totalOrders, totalVat);
+        log.info("Rapport OSS généré: id={}, commandes={}, TVA={}", report.getId(), aggregate.totalOrders, report.getTotalVat());
         return report;
     }
 
@@ -441,49 +430,105 @@ public class OssReportService {
         return ossReportRepository.save(report);
     }
 
+    /**
+     * Agrège les commandes directement en base (GROUP BY pays/taux) sans charger d'entité Order
+     */
+    @Nonnull
+    private ReportAggregate aggregateInDatabase(@Nonnull Shop shop,
+                                                @Nonnull LocalDateTime periodStart,
+                                                @Nonnull LocalDateTime periodEnd) {
+        ReportAggregate aggregate = new ReportAggregate();
+
+        // Sans pays d'établissement, aucune vente n'est éligible OSS
+        String homeCountry = shop.getCountryCode();
+        if (homeCountry == null) {
+            return aggregate;
+        }
+
+        List<OssLineAggregate> rows = orderRepository.aggregateOrdersForOssReport(shop, homeCountry, EU_COUNTRIES,
+            periodStart, periodEnd);
+        rows.forEach(aggregate::add);
+
+        return aggregate;
+    }
+
+    /**
+     * Charge toutes les commandes de la période en mémoire puis les agrège (mode historique)
+     */
+    @Nonnull
+    private ReportAggregate aggregateInMemory(@Nonnull Shop shop,
+                                              @Nonnull LocalDateTime periodStart,
+                                              @Nonnull LocalDateTime periodEnd) {
+        // Récupérer les commandes de la période
+        List<Order> orders = orderRepository.findOrdersForOssReport(shop, periodStart, periodEnd);
+
+        // Filtrer uniquement les commandes UE B2C (OSS ne concerne pas B2B exonéré)
+        List<Order> ossOrders = orders.stream()
+            .filter(o -> isOssEligible(o, shop))
+            .collect(Collectors.toList());
+
+        ReportAggregate aggregate = new ReportAggregate();
+        ossOrders.forEach(aggregate::add);
+
+        return aggregate;
+    }
+
+    /**
+     * Parcourt les commandes de la période via un curseur en lecture seule et les agrège au fil de l'eau.
+     * Chaque commande est détachée après lecture : la mémoire dépend du nombre de pays, pas de commandes.
+     */
+    @Nonnull
+    private ReportAggregate aggregateStreaming(@Nonnull Shop shop,
+                                               @Nonnull LocalDateTime periodStart,
+                                               @Nonnull LocalDateTime periodEnd) {
+        ReportAggregate aggregate = new ReportAggregate();
+
+        try (Stream<Order> orders = orderRepository.streamOrdersForOssReport(shop, periodStart, periodEnd)) {
+            orders.forEach(order -> {
+                if (isOssEligible(order, shop)) {
+                    aggregate.add(order);
+                }
+                entityManager.detach(order);
+            });
+        }
+
+        return aggregate;
+    }
+
     private void createReportLines(@Nonnull OssReport report,
-                                   @Nonnull Map<String, Map<BigDecimal, List<Order>>> ordersByCountryAndRate) {
-        var euRates = euVatRateRepository.findByIsEuMemberTrueOrderByCountryNameAsc();
-        Map<String, String> countryNames = euRates.stream()
-            .collect(Collectors.toMap(
-                r -> r.getCountryCode(),
-                r -> r.getCountryName(),
-                (a, b) -> a
-            ));
-
-        for (Map.Entry<String, Map<BigDecimal, List<Order>>> countryEntry : ordersByCountryAndRate.entrySet()) {
+                                   @Nonnull Map<String, Map<BigDecimal, LineAccumulator>> linesByCountryAndRate) {
+        List<OssReportLine> lines = new ArrayList<>();
+        for (Map.Entry<String, Map<BigDecimal, LineAccumulator>> countryEntry : linesByCountryAndRate.entrySet()) {
             String countryCode = countryEntry.getKey();
+            String countryName = vatRateTable.getCountryName(countryCode);
 
-            for (Map.Entry<BigDecimal, List<Order>> rateEntry : countryEntry.getValue().entrySet()) {
+            for (Map.Entry<BigDecimal, LineAccumulator> rateEntry : countryEntry.getValue().entrySet()) {
                 BigDecimal vatRate = rateEntry.getKey();
-                List<Order> countryOrders = rateEntry.getValue();
-
-                BigDecimal taxableAmount = countryOrders.stream()
-                    .map(o -> o.getSubtotalAmount() != null ? o.getSubtotalAmount() : BigDecimal.ZERO)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                BigDecimal vatAmount = countryOrders.stream()
-                    .map(o -> o.getCalculatedVatAmount() != null ? o.getCalculatedVatAmount() : BigDecimal.ZERO)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+                LineAccumulator accumulator = rateEntry.getValue();
 
+                BigDecimal taxableAmount = accumulator.taxableAmount.toAmount();
+                BigDecimal vatAmount = accumulator.vatAmount.toAmount();
                 BigDecimal totalAmount = taxableAmount.add(vatAmount);
 
                 OssReportLine line = OssReportLine.builder()
                     .report(report)
                     .countryCode(countryCode)
-                    .countryName(countryNames.getOrDefault(countryCode, countryCode))
+                    .countryName(countryName != null ? countryName : countryCode)
                     .vatRate(vatRate)
                     .taxableAmount(taxableAmount)
                     .vatAmount(vatAmount)
                     .totalAmount(totalAmount)
-                    .ordersCount(countryOrders.size())
+                    .ordersCount(accumulator.ordersCount)
                     .b2cAmount(taxableAmount)
                     .b2bExemptAmount(BigDecimal.ZERO)
                     .build();
 
-                ossReportLineRepository.save(line);
+                lines.add(line);
             }
         }
+
+        // Insertion groupée (identifiants par séquence, batch JDBC)
+        ossReportLineRepository.saveAll(lines);
     }
 
     @Nonnull
@@ -530,12 +575,110 @@ public class OssReportService {
         }
 
         // Hors UE = pas OSS
-        Set<String> euCountries = Set.of(
-            "AT", "BE", "BG", "HR", "CY", "CZ", "DK", "EE", "FI", "FR",
-            "DE", "GR", "HU", "IE", "IT", "LV", "LT", "LU", "MT", "NL",
-            "PL", "PT", "RO", "SK", "SI", "ES", "SE"
-        );
+        return EU_COUNTRIES.contains(customerCountry);
+    }
 
-        return euCountries.contains(customerCountry);
+    /**
+     * Marque en une seule requête UPDATE les commandes éligibles de la période avec l'identifiant du rapport.
+     * Mêmes critères d'éligibilité que {@link #isOssEligible}.
+     *
+     * @return le nombre de commandes marquées
+     */
+    private int markOrdersIncluded(@Nonnull Shop shop,
+                                   @Nonnull Long reportId,
+                                   @Nonnull LocalDateTime periodStart,
+                                   @Nonnull LocalDateTime periodEnd) {
+        String homeCountry = shop.getCountryCode();
+        if (homeCountry == null) {
+            return 0;
+        }
+        return orderRepository.markIncludedInOssReport(shop, homeCountry, EU_COUNTRIES, periodStart, periodEnd, reportId);
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Stratégie d'agrégation des commandes lors de la génération d'un rapport
+     */
+    public enum GenerationMode {
+        IN_MEMORY,
+        STREAMING,
+        SQL_AGGREGATE
+    }
+
+    /**
+     * Cumuls d'une ligne de rapport (un pays, un taux)
+     */
+    private static final class LineAccumulator {
+
+        private int ordersCount;
+        private final Money.Sum taxableAmount = new Money.Sum();
+        private final Money.Sum vatAmount = new Money.Sum();
+    }
+
+    /**
+     * Cumuls du rapport et de ses lignes par pays et taux de TVA
+     */
+    private static final class ReportAggregate {
+
+        private final Map<String, Map<BigDecimal, LineAccumulator>> lines = new HashMap<>();
+        private int b2bOrders;
+        private int b2cOrders;
+        private int exemptOrders;
+        private int totalOrders;
+        private final Money.Sum totalSales = new Money.Sum();
+        private final Money.Sum totalVat = new Money.Sum();
+
+        private void add(@Nonnull Order order) {
+            String country = order.getCustomerCountryCode();
+            BigDecimal vatRate = order.getExpectedVatRate() != null ? order.getExpectedVatRate() : BigDecimal.ZERO;
+            BigDecimal subtotal = order.getSubtotalAmount();
+            BigDecimal vat = order.getCalculatedVatAmount();
+
+            LineAccumulator line = lines
+                .computeIfAbsent(country, k -> new HashMap<>())
+                .computeIfAbsent(vatRate, k -> new LineAccumulator());
+            line.ordersCount++;
+            line.taxableAmount.add(subtotal);
+            line.vatAmount.add(vat);
+
+            totalOrders++;
+            totalSales.add(subtotal);
+            totalVat.add(vat);
+
+            if (Boolean.TRUE.equals(order.getIsB2b())) {
+                b2bOrders++;
+            } else {
+                b2cOrders++;
+            }
+
+            if (Boolean.TRUE.equals(order.getVatExempt())) {
+                exemptOrders++;
+            }
+        }
+
+        private void add(@Nonnull OssLineAggregate row) {
+            BigDecimal vatRate = row.getVatRate() != null ? row.getVatRate() : BigDecimal.ZERO;
+            BigDecimal subtotal = row.getTaxableAmount();
+            BigDecimal vat = row.getVatAmount();
+            int count = row.getOrdersCount().intValue();
+            int b2b = row.getB2bOrders() != null ? row.getB2bOrders().intValue() : 0;
+
+            LineAccumulator line = lines
+                .computeIfAbsent(row.getCountryCode(), k -> new HashMap<>())
+                .computeIfAbsent(vatRate, k -> new LineAccumulator());
+            line.ordersCount += count;
+            line.taxableAmount.add(subtotal);
+            line.vatAmount.add(vat);
+
+            totalOrders += count;
+            totalSales.add(subtotal);
+            totalVat.add(vat);
+            b2bOrders += b2b;
+            b2cOrders += count - b2b;
+            exemptOrders += row.getExemptOrders() != null ? row.getExemptOrders().intValue() : 0;
+        }
     }
 }
@@ -0,0 +1,215 @@
+package com.euvatease.service;
+
+import com.euvatease.entity.Order;
+import com.euvatease.entity.OssThresholdTotal;
+import com.euvatease.entity.Shop;
+import com.euvatease.repository.OrderRepository;
+import com.euvatease.repository.OssThresholdTotalRepository;
+import com.euvatease.repository.ShopRepository;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cumul annuel des ventes UE transfrontalières par boutique, pour le seuil OSS.
+ * Le cumul est ajusté à chaque création, modification ou remboursement de commande, puis recalculé chaque nuit.
+ */
+@Service
+public class OssThresholdService {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final Logger log = LoggerFactory.getLogger(OssThresholdService.class);
+
+    // Pays UE
+    private static final Set<String> EU_COUNTRIES = Set.of(
+        "AT", "BE", "BG", "HR", "CY", "CZ", "DK", "EE", "FI", "FR",
+        "DE", "GR", "HU", "IE", "IT", "LV", "LT", "LU", "MT", "NL",
+        "PL", "PT", "RO", "SK", "SI", "ES", "SE"
+    );
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final OrderRepository orderRepository;
+
+    @Nonnull
+    private final OssThresholdTotalRepository ossThresholdTotalRepository;
+
+    @Nonnull
+    private final ShopRepository shopRepository;
+
+    @Nonnull
+    private final TransactionTemplate transactionTemplate;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    public OssThresholdService(@Nonnull OrderRepository orderRepository,
+                               @Nonnull OssThresholdTotalRepository ossThresholdTotalRepository,
+                               @Nonnull ShopRepository shopRepository,
+                               @Nonnull PlatformTransactionManager transactionManager) {
+        this.orderRepository = Objects.requireNonNull(orderRepository, "orderRepository must not be null");
+        this.ossThresholdTotalRepository = Objects.requireNonNull(ossThresholdTotalRepository, "ossThresholdTotalRepository must not be null");
+        this.shopRepository = Objects.requireNonNull(shopRepository, "shopRepository must not be null");
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager, "transactionManager must not be null"));
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Reporte sur le cumul l'écart entre la contribution d'une commande avant et après modification.
+     * S'exécute dans la transaction de l'appelant, après l'enregistrement de la commande : une année sans cumul
+     * est recalculée entièrement (commande comprise) plutôt qu'initialisée avec le seul écart.
+     */
+    public void applyChange(@Nonnull Shop shop,
+                            @Nullable Contribution before,
+                            @Nullable Contribution after) {
+        if (before != null && after != null && before.year == after.year) {
+            BigDecimal delta = after.amount.subtract(before.amount);
+            if (delta.signum() != 0) {
+                addEuSales(shop, after.year, delta);
+            }
+            return;
+        }
+        if (before != null) {
+            addEuSales(shop, before.year, before.amount.negate());
+        }
+        if (after != null) {
+            addEuSales(shop, after.year, after.amount);
+        }
+    }
+
+    /**
+     * Part d'une commande dans le cumul : montant net des remboursements, si la vente est UE hors pays de la boutique.
+     * Mêmes critères que {@link OrderRepository#sumEuSalesForOssThreshold}.
+     */
+    @Nullable
+    public Contribution contributionOf(@Nonnull Shop shop,
+                                       @Nonnull Order order) {
+        String homeCountry = shop.getCountryCode();
+        String customerCountry = order.getCustomerCountryCode();
+        if (homeCountry == null || customerCountry == null || order.getOrderDate() == null || order.getTotalAmount() == null) {
+            return null;
+        }
+        if (!EU_COUNTRIES.contains(customerCountry) || customerCountry.equals(homeCountry)) {
+            return null;
+        }
+        BigDecimal refund = order.getRefundAmount() != null ? order.getRefundAmount() : BigDecimal.ZERO;
+        return new Contribution(order.getOrderDate().getYear(), order.getTotalAmount().subtract(refund));
+    }
+
+    /**
+     * Ventes UE transfrontalières de l'année, lues depuis le cumul (initialisé à la première lecture)
+     */
+    @Nonnull
+    public BigDecimal getEuSales(@Nonnull Shop shop,
+                                 int year) {
+        return ossThresholdTotalRepository.findByShopAndYear(shop, year)
+            .map(OssThresholdTotal::getEuSales)
+            .orElseGet(() -> reconcile(shop, year));
+    }
+
+    /**
+     * Recalcule le cumul d'une année à partir des commandes et le remplace.
+     * La ligne est verrouillée avant la somme : les ajustements concurrents sont soit déjà validés (donc comptés),
+     * soit en attente du verrou et appliqués ensuite sur le nouveau cumul.
+     */
+    @Nonnull
+    public BigDecimal reconcile(@Nonnull Shop shop,
+                                int year) {
+        return Objects.requireNonNull(transactionTemplate.execute(status -> {
+            ossThresholdTotalRepository.insertIfAbsent(shop.getId(), year);
+            ossThresholdTotalRepository.lockEuSales(shop.getId(), year);
+
+            String homeCountry = shop.getCountryCode();
+            BigDecimal euSales = null;
+            if (homeCountry != null) {
+                LocalDateTime yearStart = LocalDate.of(year, 1, 1).atStartOfDay();
+                euSales = orderRepository.sumEuSalesForOssThreshold(shop, homeCountry, EU_COUNTRIES,
+                    yearStart, yearStart.plusYears(1));
+            }
+            if (euSales == null) {
+                euSales = BigDecimal.ZERO;
+            }
+
+            ossThresholdTotalRepository.setEuSales(shop.getId(), year, euSales);
+            return euSales;
+        }));
+    }
+
+    /**
+     * Job planifié de recalcul des cumuls de l'année en cours
+     */
+    @Scheduled(cron = "0 30 3 * * *") // Tous les jours à 3h30
+    public void reconcileAll() {
+        int year = LocalDate.now().getYear();
+        List<Shop> shops = shopRepository.findByIsActiveTrue();
+
+        int drifted = 0;
+        for (Shop shop : shops) {
+            try {
+                BigDecimal tracked = ossThresholdTotalRepository.findByShopAndYear(shop, year)
+                    .map(OssThresholdTotal::getEuSales)
+                    .orElse(null);
+                BigDecimal actual = reconcile(shop, year);
+
+                if (tracked != null && tracked.compareTo(actual) != 0) {
+                    drifted++;
+                    log.warn("Cumul seuil OSS corrigé: shop={}, année={}, cumul={}, recalcul={}",
+                        shop.getShopifyDomain(), year, tracked, actual);
+                }
+            } catch (Exception e) {
+                log.error("Erreur recalcul cumul seuil OSS shop={}: {}", shop.getShopifyDomain(), e.getMessage());
+            }
+        }
+
+        log.info("Cumuls seuil OSS recalculés: {} boutiques, {} corrigées", shops.size(), drifted);
+    }
+
+    private void addEuSales(@Nonnull Shop shop,
+                            int year,
+                            @Nonnull BigDecimal amount) {
+        if (ossThresholdTotalRepository.addEuSales(shop.getId(), year, amount) == 0) {
+            reconcile(shop, year);
+        }
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Contribution d'une commande au cumul d'une année
+     */
+    public static final class Contribution {
+
+        private final BigDecimal amount;
+        private final int year;
+
+        private Contribution(int year,
+                             @Nonnull BigDecimal amount) {
+            this.year = year;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.euvatease.service;
+
+import com.euvatease.entity.Order;
+import com.euvatease.entity.Shop;
+import com.euvatease.repository.ShopCountryDailyStatsRepository;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Agrégats quotidiens des commandes par boutique et pays (table shop_country_daily_stats).
+ * Ils sont ajustés par différence à chaque écriture de commande, ce qui évite au tableau de bord de parcourir orders.
+ */
+@Service
+public class SalesRollupService {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final ShopCountryDailyStatsRepository shopCountryDailyStatsRepository;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    public SalesRollupService(@Nonnull ShopCountryDailyStatsRepository shopCountryDailyStatsRepository) {
+        this.shopCountryDailyStatsRepository = Objects.requireNonNull(shopCountryDailyStatsRepository, "shopCountryDailyStatsRepository must not be null");
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Reporte sur les agrégats l'écart entre l'état d'une commande avant et après écriture.
+     * S'exécute dans la transaction de l'appelant.
+     */
+    public void applyChange(@Nonnull Shop shop,
+                            @Nullable Snapshot before,
+                            @Nullable Snapshot after) {
+        if (before != null && after != null && before.sameBucket(after)) {
+            int errors = after.errorCount() - before.errorCount();
+            BigDecimal totalAmount = after.totalAmount.subtract(before.totalAmount);
+            BigDecimal taxAmount = after.taxAmount.subtract(before.taxAmount);
+            if (errors != 0 || totalAmount.signum() != 0 || taxAmount.signum() != 0) {
+                shopCountryDailyStatsRepository.addStats(shop.getId(), after.countryCode, after.day,
+                    0, totalAmount, taxAmount, errors);
+            }
+            return;
+        }
+        if (before != null) {
+            shopCountryDailyStatsRepository.addStats(shop.getId(), before.countryCode, before.day,
+                -1, before.totalAmount.negate(), before.taxAmount.negate(), -before.errorCount());
+        }
+        if (after != null) {
+            shopCountryDailyStatsRepository.addStats(shop.getId(), after.countryCode, after.day,
+                1, after.totalAmount, after.taxAmount, after.errorCount());
+        }
+    }
+
+    /**
+     * Nombre de commandes d'une période (bornes incluses, au jour près)
+     */
+    public long countOrdersInPeriod(@Nonnull Shop shop,
+                                    @Nonnull LocalDate start,
+                                    @Nonnull LocalDate end) {
+        return shopCountryDailyStatsRepository.countOrdersInPeriod(shop, start, end);
+    }
+
+    /**
+     * Nombre de commandes en erreur de TVA, toutes périodes confondues
+     */
+    public long countVatErrors(@Nonnull Shop shop) {
+        return shopCountryDailyStatsRepository.countVatErrors(shop);
+    }
+
+    /**
+     * Ventes par pays : [pays, nombre de commandes, total TTC, TVA], triées par total décroissant
+     */
+    @Nonnull
+    public List<Object[]> getSalesByCountry(@Nonnull Shop shop,
+                                            @Nonnull LocalDate start,
+                                            @Nonnull LocalDate end) {
+        return shopCountryDailyStatsRepository.getSalesByCountry(shop, start, end);
+    }
+
+    /**
+     * Part d'une commande dans les agrégats, ou null si elle n'est pas datée
+     */
+    @Nullable
+    public Snapshot snapshotOf(@Nonnull Order order) {
+        if (order.getOrderDate() == null) {
+            return null;
+        }
+        return new Snapshot(order);
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Valeurs d'une commande prises en compte dans les agrégats, figées à un instant donné
+     */
+    public static final class Snapshot {
+
+        private final String countryCode;
+        private final LocalDate day;
+        private final BigDecimal taxAmount;
+        private final BigDecimal totalAmount;
+        private final boolean vatError;
+
+        private Snapshot(@Nonnull Order order) {
+            this.countryCode = order.getCustomerCountryCode() != null ? order.getCustomerCountryCode() : "";
+            this.day = order.getOrderDate().toLocalDate();
+            this.taxAmount = order.getTaxAmount() != null ? order.getTaxAmount() : BigDecimal.ZERO;
+            this.totalAmount = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+            this.vatError = Boolean.TRUE.equals(order.getHasVatError());
+        }
+
+        private int errorCount() {
+            return vatError ? 1 : 0;
+        }
+
+        private boolean sameBucket(@Nonnull Snapshot other) {
+            return day.equals(other.day) && countryCode.equals(other.countryCode);
+        }
+    }
+}
@@ -10,7 +10,6 @@ import org.apache.hc.client5.http.classic.methods.HttpDelete;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +43,9 @@ public class ShopifyBillingService {
     @Nonnull
     private final AuditLogService auditLogService;
 
+    @Nonnull
+    private final CloseableHttpClient httpClient;
+
     @Nonnull
     private final ObjectMapper objectMapper;
 
@@ -71,10 +73,12 @@ public class ShopifyBillingService {
 
     public ShopifyBillingService(@Nonnull ShopRepository shopRepository,
                                  @Nonnull AuditLogService auditLogService,
-                                 @Nonnull ObjectMapper objectMapper) {
+                                 @Nonnull ObjectMapper objectMapper,
+                                 @Nonnull CloseableHttpClient httpClient) {
         this.shopRepository = Objects.requireNonNull(shopRepository, "shopRepository must not be null");
         this.auditLogService = Objects.requireNonNull(auditLogService, "auditLogService must not be null");
         this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient must not be null");
     }
 
     //~ ------------------------------------------------------------------------------------------------
@@ -91,46 +95,44 @@ public class ShopifyBillingService {
         String url = String.format("https://%s/admin/api/%s/recurring_application_charges/%s.json",
             shop.getShopifyDomain(), SHOPIFY_API_VERSION, chargeId);
 
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpGet request = new HttpGet(url);
-            request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
+        HttpGet request = new HttpGet(url);
+        request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
 
-            String response = client.execute(request, httpResponse ->
-                new String(httpResponse.getEntity().getContent().readAllBytes()));
+        String response = httpClient.execute(request, httpResponse ->
+            new String(httpResponse.getEntity().getContent().readAllBytes()));
 
-            JsonNode jsonResponse = objectMapper.readTree(response);
-            JsonNode charge = jsonResponse.get("recurring_application_charge");
+        JsonNode jsonResponse = objectMapper.readTree(response);
+        JsonNode charge = jsonResponse.get("recurring_application_charge");
 
-            if (charge != null) {
-                String status = charge.get("status").asText();
+        if (charge != null) {
+            String status = charge.get("status").asText();
 
-                if ("active".equals(status)) {
-                    shop.setSubscriptionStatus(Shop.SubscriptionStatus.ACTIVE);
-                    shop.setShopifyChargeId(chargeId);
+            if ("active".equals(status)) {
+                shop.setSubscriptionStatus(Shop.SubscriptionStatus.ACTIVE);
+                shop.setShopifyChargeId(chargeId);
 
-                    // Déterminer le plan basé sur le prix
-                    BigDecimal price = new BigDecimal(charge.get("price").asText());
-                    if (price.compareTo(yearlyPrice) >= 0) {
-                        shop.setSubscriptionPlan("yearly");
-                        shop.setSubscriptionEndsAt(LocalDateTime.now().plusYears(1));
-                    } else {
-                        shop.setSubscriptionPlan("monthly");
-                        shop.setSubscriptionEndsAt(LocalDateTime.now().plusMonths(1));
-                    }
+                // Déterminer le plan basé sur le prix
+                BigDecimal price = new BigDecimal(charge.get("price").asText());
+                if (price.compareTo(yearlyPrice) >= 0) {
+                    shop.setSubscriptionPlan("yearly");
+                    shop.setSubscriptionEndsAt(LocalDateTime.now().plusYears(1));
+                } else {
+                    shop.setSubscriptionPlan("monthly");
+                    shop.setSubscriptionEndsAt(LocalDateTime.now().plusMonths(1));
+                }
 
-                    shop = shopRepository.save(shop);
+                shop = shopRepository.save(shop);
 
-                    auditLogService.log(shop, AuditLog.ActionType.SUBSCRIPTION_STARTED, "Shop", shop.getId(),
-                        "Abonnement activé: " + shop.getSubscriptionPlan());
+                auditLogService.log(shop, AuditLog.ActionType.SUBSCRIPTION_STARTED, "Shop", shop.getId(),
+                    "Abonnement activé: " + shop.getSubscriptionPlan());
 
-                    log.info("Abonnement activé: shop={}, plan={}", shop.getShopifyDomain(), shop.getSubscriptionPlan());
-                } else if ("declined".equals(status)) {
-                    log.warn("Abonnement refusé pour {}", shop.getShopifyDomain());
-                }
+                log.info("Abonnement activé: shop={}, plan={}", shop.getShopifyDomain(), shop.getSubscriptionPlan());
+            } else if ("declined".equals(status)) {
+                log.warn("Abonnement refusé pour {}", shop.getShopifyDomain());
             }
-
-            return shop;
         }
+
+        return shop;
     }
 
     /**
@@ -148,26 +150,24 @@ public class ShopifyBillingService {
 
         final String shopDomain = shop.getShopifyDomain();
 
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpDelete request = new HttpDelete(url);
-            request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
+        HttpDelete request = new HttpDelete(url);
+        request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
 
-            client.execute(request, httpResponse -> {
-                int statusCode = httpResponse.getCode();
-                if (statusCode >= 200 && statusCode < 300) {
-                    log.info("Abonnement annulé: {}", shopDomain);
-                }
-                return null;
-            });
+        httpClient.execute(request, httpResponse -> {
+            int statusCode = httpResponse.getCode();
+            if (statusCode >= 200 && statusCode < 300) {
+                log.info("Abonnement annulé: {}", shopDomain);
+            }
+            return null;
+        });
 
-            shop.setSubscriptionStatus(Shop.SubscriptionStatus.CANCELLED);
-            Shop savedShop = shopRepository.save(shop);
+        shop.setSubscriptionStatus(Shop.SubscriptionStatus.CANCELLED);
+        Shop savedShop = shopRepository.save(shop);
 
-            auditLogService.log(savedShop, AuditLog.ActionType.SUBSCRIPTION_CANCELLED, "Shop", savedShop.getId(),
-                "Abonnement annulé");
+        auditLogService.log(savedShop, AuditLog.ActionType.SUBSCRIPTION_CANCELLED, "Shop", savedShop.getId(),
+            "Abonnement annulé");
 
-            return savedShop;
-        }
+        return savedShop;
     }
 
     /**
@@ -247,27 +247,25 @@ public class ShopifyBillingService {
             )
         );
 
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpPost request = new HttpPost(url);
-            request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
-            request.setHeader("Content-Type", "application/json");
-            request.setEntity(new StringEntity(objectMapper.writeValueAsString(chargeData)));
+        HttpPost request = new HttpPost(url);
+        request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
+        request.setHeader("Content-Type", "application/json");
+        request.setEntity(new StringEntity(objectMapper.writeValueAsString(chargeData)));
 
-            String response = client.execute(request, httpResponse ->
-                new String(httpResponse.getEntity().getContent().readAllBytes()));
+        String response = httpClient.execute(request, httpResponse ->
+            new String(httpResponse.getEntity().getContent().readAllBytes()));
 
-            JsonNode jsonResponse = objectMapper.readTree(response);
-            JsonNode charge = jsonResponse.get("recurring_application_charge");
+        JsonNode jsonResponse = objectMapper.readTree(response);
+        JsonNode charge = jsonResponse.get("recurring_application_charge");
 
-            if (charge != null && charge.has("confirmation_url")) {
-                String chargeId = charge.get("id").asText();
-                shop.setShopifyChargeId(chargeId);
-                shopRepository.save(shop);
+        if (charge != null && charge.has("confirmation_url")) {
+            String chargeId = charge.get("id").asText();
+            shop.setShopifyChargeId(chargeId);
+            shopRepository.save(shop);
 
-                return charge.get("confirmation_url").asText();
-            }
-
-            throw new RuntimeException("Erreur création abonnement: " + response);
+            return charge.get("confirmation_url").asText();
         }
+
+        throw new RuntimeException("Erreur création abonnement: " + response);
     }
 }
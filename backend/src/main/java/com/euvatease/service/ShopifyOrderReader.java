@@ -0,0 +1,401 @@
+package com.euvatease.service;
+
+import com.euvatease.dto.ShopifyOrderDto;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture d'une commande Shopify (REST Admin, JSON snake_case) directement depuis un {@link JsonParser}
+ * vers {@link ShopifyOrderDto}, en une passe et sans réflexion ni arbre intermédiaire.
+ * Les champs inconnus sont ignorés ; une valeur illisible est laissée à null.
+ */
+final class ShopifyOrderReader {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    private ShopifyOrderReader() {
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Lit l'objet commande courant (le parser doit être positionné sur son START_OBJECT, ou juste avant)
+     */
+    @Nonnull
+    static ShopifyOrderDto readOrder(@Nonnull JsonParser parser) throws IOException {
+        if (parser.currentToken() == null) {
+            parser.nextToken();
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Commande Shopify invalide: objet JSON attendu");
+        }
+
+        ShopifyOrderDto order = new ShopifyOrderDto();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> order.setId(readText(parser));
+                case "order_number" -> order.setOrderNumber(readText(parser));
+                case "email" -> order.setEmail(readText(parser));
+                case "created_at" -> order.setCreatedAt(readDate(parser));
+                case "updated_at" -> order.setUpdatedAt(readDate(parser));
+                case "total_price" -> order.setTotalPrice(readDecimal(parser));
+                case "subtotal_price" -> order.setSubtotalPrice(readDecimal(parser));
+                case "total_tax" -> order.setTotalTax(readDecimal(parser));
+                case "total_shipping_price_set" -> order.setTotalShippingPrice(readShopMoney(parser));
+                case "currency" -> order.setCurrency(readText(parser));
+                case "presentment_currency" -> order.setPresentmentCurrency(readText(parser));
+                case "financial_status" -> order.setFinancialStatus(readText(parser));
+                case "fulfillment_status" -> order.setFulfillmentStatus(readText(parser));
+                case "billing_address" -> order.setBillingAddress(readAddress(parser));
+                case "shipping_address" -> order.setShippingAddress(readAddress(parser));
+                case "customer" -> order.setCustomer(readCustomer(parser));
+                case "tax_lines" -> order.setTaxLines(readTaxLines(parser));
+                case "note" -> order.setNote(readText(parser));
+                case "note_attributes" -> order.setNoteAttributes(readNoteAttributes(parser));
+                case "line_items" -> order.setLineItems(readLineItems(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Lit seulement l'identifiant et la date de mise à jour (champs de premier niveau) de la commande, sans construire
+     * ses sous-objets ; la lecture s'arrête dès que les deux sont trouvés. Une date illisible est laissée à null.
+     */
+    @Nonnull
+    static ShopifyOrderDto readVersion(@Nonnull JsonParser parser) throws IOException {
+        if (parser.currentToken() == null) {
+            parser.nextToken();
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Commande Shopify invalide: objet JSON attendu");
+        }
+
+        ShopifyOrderDto order = new ShopifyOrderDto();
+        while ((order.getId() == null || order.getUpdatedAt() == null) && parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> order.setId(readText(parser));
+                case "updated_at" -> {
+                    String value = readText(parser);
+                    try {
+                        order.setUpdatedAt(value != null ? LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME) : null);
+                    } catch (Exception e) {
+                        // Pas de repli sur maintenant() : une version inventée écarterait les livraisons suivantes
+                        return order;
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Vrai si la valeur courante est un tableau ; sinon la saute
+     */
+    private static boolean isArray(@Nonnull JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+
+    /**
+     * Vrai si la valeur courante est un objet ; sinon la saute
+     */
+    private static boolean isObject(@Nonnull JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+
+    @Nullable
+    private static ShopifyOrderDto.AddressDto readAddress(@Nonnull JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        ShopifyOrderDto.AddressDto address = new ShopifyOrderDto.AddressDto();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "first_name" -> address.setFirstName(readText(parser));
+                case "last_name" -> address.setLastName(readText(parser));
+                case "company" -> address.setCompany(readText(parser));
+                case "address1" -> address.setAddress1(readText(parser));
+                case "address2" -> address.setAddress2(readText(parser));
+                case "city" -> address.setCity(readText(parser));
+                case "province" -> address.setProvince(readText(parser));
+                case "province_code" -> address.setProvinceCode(readText(parser));
+                case "country" -> address.setCountry(readText(parser));
+                case "country_code" -> address.setCountryCode(readText(parser));
+                case "zip" -> address.setZip(readText(parser));
+                case "phone" -> address.setPhone(readText(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return address;
+    }
+
+    @Nullable
+    private static Boolean readBoolean(@Nonnull JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            return token == JsonToken.VALUE_TRUE;
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    @Nullable
+    private static ShopifyOrderDto.CustomerDto readCustomer(@Nonnull JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        ShopifyOrderDto.CustomerDto customer = new ShopifyOrderDto.CustomerDto();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> customer.setId(readText(parser));
+                case "email" -> customer.setEmail(readText(parser));
+                case "first_name" -> customer.setFirstName(readText(parser));
+                case "last_name" -> customer.setLastName(readText(parser));
+                case "phone" -> customer.setPhone(readText(parser));
+                case "tax_exempt" -> customer.setTaxExempt(readBoolean(parser));
+                case "tax_exemptions" -> customer.setTaxExemptions(readTexts(parser));
+                case "metafields" -> customer.setMetafields(readMetafields(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return customer;
+    }
+
+    @Nullable
+    private static LocalDateTime readDate(@Nonnull JsonParser parser) throws IOException {
+        String value = readText(parser);
+        if (value == null) {
+            return null;
+        }
+        try {
+            // ISO_DATE_TIME accepte le décalage horaire de Shopify (ex. 2024-01-15T10:30:00+01:00) et l'ignore
+            return LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME);
+        } catch (Exception e) {
+            return LocalDateTime.now();
+        }
+    }
+
+    @Nullable
+    private static BigDecimal readDecimal(@Nonnull JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDecimalValue();
+        }
+        String value = readText(parser);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Integer readInteger(@Nonnull JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        BigDecimal value = readDecimal(parser);
+        return value != null ? value.intValue() : null;
+    }
+
+    @Nullable
+    private static List<ShopifyOrderDto.LineItemDto> readLineItems(@Nonnull JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return null;
+        }
+        List<ShopifyOrderDto.LineItemDto> lineItems = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (!isObject(parser)) {
+                continue;
+            }
+            ShopifyOrderDto.LineItemDto lineItem = new ShopifyOrderDto.LineItemDto();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> lineItem.setId(readText(parser));
+                    case "title" -> lineItem.setTitle(readText(parser));
+                    case "quantity" -> lineItem.setQuantity(readInteger(parser));
+                    case "price" -> lineItem.setPrice(readDecimal(parser));
+                    case "sku" -> lineItem.setSku(readText(parser));
+                    case "taxable" -> lineItem.setTaxable(readBoolean(parser));
+                    case "tax_lines" -> lineItem.setTaxLines(readTaxLines(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            lineItems.add(lineItem);
+        }
+        return lineItems;
+    }
+
+    @Nullable
+    private static List<ShopifyOrderDto.MetafieldDto> readMetafields(@Nonnull JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return null;
+        }
+        List<ShopifyOrderDto.MetafieldDto> metafields = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (!isObject(parser)) {
+                continue;
+            }
+            ShopifyOrderDto.MetafieldDto metafield = new ShopifyOrderDto.MetafieldDto();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "key" -> metafield.setKey(readText(parser));
+                    case "value" -> metafield.setValue(readText(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            metafields.add(metafield);
+        }
+        return metafields;
+    }
+
+    @Nullable
+    private static List<ShopifyOrderDto.NoteAttributeDto> readNoteAttributes(@Nonnull JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return null;
+        }
+        List<ShopifyOrderDto.NoteAttributeDto> attributes = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (!isObject(parser)) {
+                continue;
+            }
+            ShopifyOrderDto.NoteAttributeDto attribute = new ShopifyOrderDto.NoteAttributeDto();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name" -> attribute.setName(readText(parser));
+                    case "value" -> attribute.setValue(readText(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            attributes.add(attribute);
+        }
+        return attributes;
+    }
+
+    /**
+     * Montant shop_money.amount d'un objet « price set »
+     */
+    @Nullable
+    private static BigDecimal readShopMoney(@Nonnull JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        BigDecimal amount = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (!"shop_money".equals(field) || !isObject(parser)) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String moneyField = parser.currentName();
+                parser.nextToken();
+                if ("amount".equals(moneyField)) {
+                    amount = readDecimal(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return amount;
+    }
+
+    @Nullable
+    private static List<ShopifyOrderDto.TaxLineDto> readTaxLines(@Nonnull JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return null;
+        }
+        List<ShopifyOrderDto.TaxLineDto> taxLines = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (!isObject(parser)) {
+                continue;
+            }
+            ShopifyOrderDto.TaxLineDto taxLine = new ShopifyOrderDto.TaxLineDto();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "title" -> taxLine.setTitle(readText(parser));
+                    case "price" -> taxLine.setPrice(readDecimal(parser));
+                    case "rate" -> taxLine.setRate(readDecimal(parser));
+                    case "channel_liable" -> taxLine.setChannelLiable(readBoolean(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            taxLines.add(taxLine);
+        }
+        return taxLines;
+    }
+
+    /**
+     * Valeur scalaire courante sous forme de texte ; null pour JSON null, un objet ou un tableau (ignorés)
+     */
+    @Nullable
+    private static String readText(@Nonnull JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null || token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    @Nullable
+    private static List<String> readTexts(@Nonnull JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String value = readText(parser);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+}
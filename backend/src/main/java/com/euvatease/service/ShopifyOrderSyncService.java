@@ -0,0 +1,385 @@
+package com.euvatease.service;
+
+import com.euvatease.config.AsyncConfig;
+import com.euvatease.dto.ShopifyOrderDto;
+import com.euvatease.entity.AuditLog;
+import com.euvatease.entity.Shop;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Synchronisation en masse des commandes Shopify, en pipeline.
+ * Un étage télécharge les pages en suivant l'en-tête Link, dans la limite du seau d'appels de la boutique,
+ * et découpe le tableau orders au fil du flux HTTP ; chaque commande passe, sous forme de jetons, par une file bornée
+ * vers un groupe de workers qui la lisent ({@link ShopifyOrderReader}) et l'enregistrent. Les workers tournent sur
+ * l'exécuteur borné partagé par toutes les synchronisations ({@link AsyncConfig#ORDER_SYNC_EXECUTOR}).
+ * Une page n'est jamais chargée entière en mémoire.
+ */
+@Service
+public class ShopifyOrderSyncService {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final Logger log = LoggerFactory.getLogger(ShopifyOrderSyncService.class);
+
+    private static final String SHOPIFY_API_VERSION = "2024-01";
+
+    // Marqueur de fin de file pour les workers (comparé par identité)
+    private static final TokenBuffer END_OF_ORDERS = new TokenBuffer(null, false);
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final AuditLogService auditLogService;
+
+    @Nonnull
+    private final ExecutorService executor;
+
+    @Nonnull
+    private final CloseableHttpClient httpClient;
+
+    @Nonnull
+    private final ObjectMapper objectMapper;
+
+    @Nonnull
+    private final ShopifyRateLimiter shopifyRateLimiter;
+
+    @Nonnull
+    private final ShopifyService shopifyService;
+
+    @Value("${shopify.sync.queue-capacity:250}")
+    private int queueCapacity;
+
+    @Value("${shopify.sync.workers:4}")
+    private int workers;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    public ShopifyOrderSyncService(@Nonnull ShopifyService shopifyService,
+                                   @Nonnull ShopifyRateLimiter shopifyRateLimiter,
+                                   @Nonnull AuditLogService auditLogService,
+                                   @Nonnull ObjectMapper objectMapper,
+                                   @Nonnull CloseableHttpClient httpClient,
+                                   @Nonnull @Qualifier(AsyncConfig.ORDER_SYNC_EXECUTOR) ExecutorService executor) {
+        this.shopifyService = Objects.requireNonNull(shopifyService, "shopifyService must not be null");
+        this.shopifyRateLimiter = Objects.requireNonNull(shopifyRateLimiter, "shopifyRateLimiter must not be null");
+        this.auditLogService = Objects.requireNonNull(auditLogService, "auditLogService must not be null");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient must not be null");
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Synchronise les commandes d'une boutique.
+     * Chaque commande est enregistrée dans sa propre transaction par {@link ShopifyService#processOrder}.
+     *
+     * @throws RejectedExecutionException si l'exécuteur de synchronisation n'accepte aucun worker (trop de
+     *                                    synchronisations en cours)
+     */
+    public int syncOrders(@Nonnull Shop shop,
+                          @Nullable LocalDateTime since) {
+        log.info("Synchronisation des commandes pour {} depuis {}", shop.getShopifyDomain(), since);
+
+        int threads = Math.max(1, workers);
+        BlockingQueue<TokenBuffer> orders = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        AtomicInteger syncedCount = new AtomicInteger();
+        AtomicInteger failedCount = new AtomicInteger();
+
+        List<Future<?>> consumers = new ArrayList<>(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                consumers.add(executor.submit(() -> consumeOrders(shop, orders, syncedCount, failedCount)));
+            }
+        } catch (RejectedExecutionException e) {
+            if (consumers.isEmpty()) {
+                throw e;
+            }
+            // Synchronisation avec les workers déjà acceptés
+            log.warn("Exécuteur de synchronisation saturé: {} workers sur {} pour {}",
+                consumers.size(), threads, shop.getShopifyDomain());
+        }
+
+        try {
+            int pageCount = fetchPages(shop, since, orders);
+            log.info("Synchronisation {}: {} pages téléchargées", shop.getShopifyDomain(), pageCount);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Synchronisation interrompue pour {}", shop.getShopifyDomain());
+        } catch (Exception e) {
+            log.error("Erreur synchronisation commandes: {}", e.getMessage());
+        } finally {
+            signalEnd(orders, consumers);
+        }
+
+        for (Future<?> consumer : consumers) {
+            try {
+                consumer.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                consumers.forEach(c -> c.cancel(true));
+                break;
+            } catch (Exception e) {
+                log.error("Erreur worker synchronisation: {}", e.getMessage());
+            }
+        }
+
+        auditLogService.log(shop, AuditLog.ActionType.ORDERS_SYNCED, "Shop", shop.getId(),
+            String.format("%d commandes synchronisées", syncedCount.get()));
+
+        log.info("Synchronisation terminée: {} commandes, {} en erreur", syncedCount.get(), failedCount.get());
+        return syncedCount.get();
+    }
+
+    @Nonnull
+    private String buildOrdersUrl(@Nonnull Shop shop,
+                                  @Nullable LocalDateTime since,
+                                  @Nullable String pageInfo) {
+        String baseUrl = String.format("https://%s/admin/api/%s/orders.json",
+            shop.getShopifyDomain(), SHOPIFY_API_VERSION);
+
+        if (pageInfo != null) {
+            return baseUrl + "?page_info=" + pageInfo + "&limit=250";
+        }
+
+        StringBuilder url = new StringBuilder(baseUrl);
+        url.append("?status=any&limit=250");
+
+        if (since != null) {
+            url.append("&created_at_min=").append(since.format(DateTimeFormatter.ISO_DATE_TIME));
+        }
+
+        return url.toString();
+    }
+
+    /**
+     * Worker : enregistre les commandes de la file jusqu'au marqueur de fin
+     */
+    private void consumeOrders(@Nonnull Shop shop,
+                               @Nonnull BlockingQueue<TokenBuffer> orders,
+                               @Nonnull AtomicInteger syncedCount,
+                               @Nonnull AtomicInteger failedCount) {
+        while (true) {
+            TokenBuffer orderTokens;
+            try {
+                orderTokens = orders.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (orderTokens == END_OF_ORDERS) {
+                return;
+            }
+
+            String shopifyOrderId = null;
+            try {
+                ShopifyOrderDto orderDto;
+                try (JsonParser parser = orderTokens.asParser()) {
+                    orderDto = ShopifyOrderReader.readOrder(parser);
+                }
+                shopifyOrderId = orderDto.getId();
+                shopifyService.processOrder(shop, orderDto, objectMapper.writeValueAsString(orderTokens));
+                syncedCount.incrementAndGet();
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+                log.error("Erreur synchronisation commande {}: {}", shopifyOrderId, e.getMessage());
+            }
+        }
+    }
+
+    @Nullable
+    private String extractNextPageInfo(@Nullable String linkHeader) {
+        if (linkHeader == null || linkHeader.isEmpty()) {
+            return null;
+        }
+
+        String[] links = linkHeader.split(",");
+        for (String link : links) {
+            if (link.contains("rel=\"next\"")) {
+                int start = link.indexOf("page_info=") + 10;
+                int end = link.indexOf(">", start);
+                if (start > 10 && end > start) {
+                    return link.substring(start, end);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Étage de téléchargement : suit la pagination et dépose chaque commande dans la file (bloquant si elle est pleine)
+     *
+     * @return le nombre de pages téléchargées
+     */
+    private int fetchPages(@Nonnull Shop shop,
+                           @Nullable LocalDateTime since,
+                           @Nonnull BlockingQueue<TokenBuffer> orders) throws Exception {
+        String shopDomain = shop.getShopifyDomain();
+        String pageInfo = null;
+        int pageCount = 0;
+
+        boolean hasNextPage = true;
+        while (hasNextPage) {
+            HttpGet request = new HttpGet(buildOrdersUrl(shop, since, pageInfo));
+            request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
+
+            shopifyRateLimiter.acquire(shopDomain);
+            PageResponse response = httpClient.execute(request, httpResponse -> {
+                shopifyRateLimiter.update(shopDomain, headerValue(httpResponse.getFirstHeader(ShopifyRateLimiter.CALL_LIMIT_HEADER)));
+                int status = httpResponse.getCode();
+                int orderCount = 0;
+                if (status < 300 && httpResponse.getEntity() != null) {
+                    try (InputStream body = httpResponse.getEntity().getContent()) {
+                        orderCount = streamOrders(body, orders);
+                    }
+                }
+                return new PageResponse(status, orderCount,
+                    headerValue(httpResponse.getFirstHeader("Link")),
+                    headerValue(httpResponse.getFirstHeader("Retry-After")));
+            });
+
+            if (response.status == 429) {
+                shopifyRateLimiter.backOff(shopDomain, parseRetryAfter(response.retryAfter));
+                continue;
+            }
+            if (response.status >= 300) {
+                throw new RuntimeException("Erreur API Shopify: HTTP " + response.status);
+            }
+
+            pageCount++;
+            log.debug("Page {} de {}: {} commandes", pageCount, shopDomain, response.orderCount);
+            pageInfo = extractNextPageInfo(response.link);
+            hasNextPage = pageInfo != null;
+        }
+
+        return pageCount;
+    }
+
+    @Nullable
+    private String headerValue(@Nullable Header header) {
+        return header != null ? header.getValue() : null;
+    }
+
+    private double parseRetryAfter(@Nullable String retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return Double.parseDouble(retryAfter.trim());
+            } catch (NumberFormatException e) {
+                // Valeur par défaut ci-dessous
+            }
+        }
+        return 2.0;
+    }
+
+    /**
+     * Dépose un marqueur de fin par worker ; si la file reste pleine (workers arrêtés), abandonne
+     */
+    private void signalEnd(@Nonnull BlockingQueue<TokenBuffer> orders,
+                           @Nonnull List<Future<?>> consumers) {
+        for (int i = 0; i < consumers.size(); i++) {
+            boolean queued = false;
+            while (!queued && consumers.stream().anyMatch(c -> !c.isDone())) {
+                try {
+                    queued = orders.offer(END_OF_ORDERS, 1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    consumers.forEach(c -> c.cancel(true));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lit le tableau orders d'une réponse au fil du flux et dépose chaque commande dans la file dès qu'elle est complète
+     *
+     * @return le nombre de commandes lues
+     */
+    private int streamOrders(@Nonnull InputStream body,
+                             @Nonnull BlockingQueue<TokenBuffer> orders) throws IOException {
+        int count = 0;
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Réponse commandes Shopify invalide");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY || !"orders".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    TokenBuffer orderTokens = new TokenBuffer(parser);
+                    orderTokens.copyCurrentStructure(parser);
+                    try {
+                        orders.put(orderTokens);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Synchronisation interrompue");
+                    }
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final class PageResponse {
+
+        private final String link;
+        private final int orderCount;
+        private final String retryAfter;
+        private final int status;
+
+        private PageResponse(int status,
+                             int orderCount,
+                             @Nullable String link,
+                             @Nullable String retryAfter) {
+            this.status = status;
+            this.orderCount = orderCount;
+            this.link = link;
+            this.retryAfter = retryAfter;
+        }
+    }
+}
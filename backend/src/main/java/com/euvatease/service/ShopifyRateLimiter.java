@@ -0,0 +1,167 @@
+package com.euvatease.service;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Seau à jetons par boutique, calqué sur le « leaky bucket » de l'API Admin REST de Shopify.
+ * Le niveau estimé fuit au rythme configuré et est recalé sur l'en-tête X-Shopify-Shop-Api-Call-Limit de chaque réponse.
+ */
+@Service
+public class ShopifyRateLimiter {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    public static final String CALL_LIMIT_HEADER = "X-Shopify-Shop-Api-Call-Limit";
+
+    private static final Logger log = LoggerFactory.getLogger(ShopifyRateLimiter.class);
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    @Value("${shopify.api.bucket-size:40}")
+    private int bucketSize;
+
+    @Value("${shopify.api.leak-rate:2}")
+    private double leakRate;
+
+    // Jetons laissés libres pour les webhooks et appels interactifs de la même boutique
+    @Value("${shopify.api.reserved-calls:2}")
+    private int reservedCalls;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Bloque jusqu'à ce qu'un appel puisse être émis pour la boutique sans dépasser sa limite
+     */
+    public void acquire(@Nonnull String shopDomain) throws InterruptedException {
+        bucket(shopDomain).acquire();
+    }
+
+    /**
+     * Force une pause après une réponse 429 (en-tête Retry-After, en secondes)
+     */
+    public void backOff(@Nonnull String shopDomain,
+                        double retryAfterSeconds) {
+        bucket(shopDomain).fill(retryAfterSeconds);
+        log.warn("Limite API Shopify atteinte pour {}, pause de {}s", shopDomain, retryAfterSeconds);
+    }
+
+    /**
+     * Recale le niveau estimé sur la valeur « utilisés/capacité » renvoyée par Shopify
+     */
+    public void update(@Nonnull String shopDomain,
+                       @Nullable String callLimitHeader) {
+        if (callLimitHeader == null) {
+            return;
+        }
+        int slash = callLimitHeader.indexOf('/');
+        if (slash <= 0) {
+            return;
+        }
+        try {
+            int used = Integer.parseInt(callLimitHeader.substring(0, slash).trim());
+            int capacity = Integer.parseInt(callLimitHeader.substring(slash + 1).trim());
+            bucket(shopDomain).sync(used, capacity);
+        } catch (NumberFormatException e) {
+            log.debug("En-tête {} illisible: {}", CALL_LIMIT_HEADER, callLimitHeader);
+        }
+    }
+
+    @Nonnull
+    private Bucket bucket(@Nonnull String shopDomain) {
+        return buckets.computeIfAbsent(shopDomain, k -> new Bucket(bucketSize, leakRate, reservedCalls));
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final class Bucket {
+
+        private int capacity;
+        private long lastLeakNanos = System.nanoTime();
+        private final double leakPerNano;
+        private final Condition leaked;
+        private double level;
+        // Verrou explicite plutôt que synchronized/wait : l'attente ne bloque pas un thread porteur (threads virtuels)
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int reserved;
+
+        private Bucket(int capacity,
+                       double leakPerSecond,
+                       int reserved) {
+            this.capacity = capacity;
+            this.leakPerNano = leakPerSecond / 1_000_000_000d;
+            this.reserved = reserved;
+            this.leaked = lock.newCondition();
+        }
+
+        private void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (true) {
+                    leak();
+                    double limit = Math.max(1, capacity - reserved);
+                    if (level + 1 <= limit) {
+                        level += 1;
+                        return;
+                    }
+                    long waitMillis = (long) Math.ceil((level + 1 - limit) / leakPerNano / 1_000_000d);
+                    leaked.await(Math.max(1, waitMillis), TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void fill(double retryAfterSeconds) {
+            lock.lock();
+            try {
+                leak();
+                // Niveau tel qu'il faille attendre retryAfterSeconds avant le prochain appel
+                level = Math.max(level, capacity - reserved + retryAfterSeconds * leakPerNano * 1_000_000_000d - 1);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void leak() {
+            long now = System.nanoTime();
+            level = Math.max(0, level - (now - lastLeakNanos) * leakPerNano);
+            lastLeakNanos = now;
+        }
+
+        private void sync(int used,
+                          int capacity) {
+            lock.lock();
+            try {
+                leak();
+                this.capacity = capacity;
+                // Shopify compte aussi les appels des autres clients : on retient la plus haute estimation
+                this.level = Math.max(level, used);
+                leaked.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.euvatease.service;
 
+import com.euvatease.dto.ShopifyOrderDto;
 import com.euvatease.entity.AuditLog;
 import com.euvatease.entity.Order;
 import com.euvatease.entity.Shop;
 import com.euvatease.repository.OrderRepository;
 import com.euvatease.repository.ShopRepository;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Nonnull;
@@ -12,29 +14,25 @@ import jakarta.annotation.Nullable;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Service d'intégration Shopify.
@@ -58,12 +56,21 @@ public class ShopifyService {
     @Nonnull
     private final AuditLogService auditLogService;
 
+    @Nonnull
+    private final CloseableHttpClient httpClient;
+
     @Nonnull
     private final ObjectMapper objectMapper;
 
     @Nonnull
     private final OrderRepository orderRepository;
 
+    @Nonnull
+    private final OssThresholdService ossThresholdService;
+
+    @Nonnull
+    private final SalesRollupService salesRollupService;
+
     @Nonnull
     private final ShopRepository shopRepository;
 
@@ -99,16 +106,22 @@ public class ShopifyService {
 
     public ShopifyService(@Nonnull ShopRepository shopRepository,
                           @Nonnull OrderRepository orderRepository,
+                          @Nonnull OssThresholdService ossThresholdService,
+                          @Nonnull SalesRollupService salesRollupService,
                           @Nonnull VatCalculationService vatCalculationService,
                           @Nonnull ViesValidationService viesValidationService,
                           @Nonnull AuditLogService auditLogService,
-                          @Nonnull ObjectMapper objectMapper) {
+                          @Nonnull ObjectMapper objectMapper,
+                          @Nonnull CloseableHttpClient httpClient) {
         this.shopRepository = Objects.requireNonNull(shopRepository, "shopRepository must not be null");
         this.orderRepository = Objects.requireNonNull(orderRepository, "orderRepository must not be null");
+        this.ossThresholdService = Objects.requireNonNull(ossThresholdService, "ossThresholdService must not be null");
+        this.salesRollupService = Objects.requireNonNull(salesRollupService, "salesRollupService must not be null");
         this.vatCalculationService = Objects.requireNonNull(vatCalculationService, "vatCalculationService must not be null");
         this.viesValidationService = Objects.requireNonNull(viesValidationService, "viesValidationService must not be null");
         this.auditLogService = Objects.requireNonNull(auditLogService, "auditLogService must not be null");
         this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient must not be null");
     }
 
     //~ ------------------------------------------------------------------------------------------------
@@ -131,48 +144,46 @@ public class ShopifyService {
             "code", code
         );
 
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpPost request = new HttpPost(url);
-            request.setHeader("Content-Type", "application/json");
-            request.setEntity(new StringEntity(objectMapper.writeValueAsString(body)));
+        HttpPost request = new HttpPost(url);
+        request.setHeader("Content-Type", "application/json");
+        request.setEntity(new StringEntity(objectMapper.writeValueAsString(body)));
 
-            String response = client.execute(request, httpResponse ->
-                new String(httpResponse.getEntity().getContent().readAllBytes()));
+        String response = httpClient.execute(request, httpResponse ->
+            new String(httpResponse.getEntity().getContent().readAllBytes()));
 
-            JsonNode jsonResponse = objectMapper.readTree(response);
-            String accessToken = jsonResponse.get("access_token").asText();
-            String tokenScope = jsonResponse.has("scope") ? jsonResponse.get("scope").asText() : "";
+        JsonNode jsonResponse = objectMapper.readTree(response);
+        String accessToken = jsonResponse.get("access_token").asText();
+        String tokenScope = jsonResponse.has("scope") ? jsonResponse.get("scope").asText() : "";
 
-            // Récupérer les informations de la boutique
-            JsonNode shopInfo = getShopInfo(normalizedDomain, accessToken);
+        // Récupérer les informations de la boutique
+        JsonNode shopInfo = getShopInfo(normalizedDomain, accessToken);
 
-            // Créer ou mettre à jour la boutique
-            Shop shop = shopRepository.findByShopifyDomain(normalizedDomain)
-                .orElse(new Shop());
+        // Créer ou mettre à jour la boutique
+        Shop shop = shopRepository.findByShopifyDomain(normalizedDomain)
+            .orElse(new Shop());
 
-            shop.setShopifyDomain(normalizedDomain);
-            shop.setAccessToken(accessToken);
-            shop.setShopifyShopId(shopInfo.get("id").asText());
-            shop.setShopName(shopInfo.get("name").asText());
-            shop.setEmail(shopInfo.get("email").asText());
-            shop.setCountryCode(shopInfo.get("country_code").asText());
-            shop.setCurrency(shopInfo.get("currency").asText());
-            shop.setIsActive(true);
-            shop.setInstalledAt(LocalDateTime.now());
-            shop.setSubscriptionStatus(Shop.SubscriptionStatus.TRIAL);
-            shop.setTrialEndsAt(LocalDateTime.now().plusDays(14));
+        shop.setShopifyDomain(normalizedDomain);
+        shop.setAccessToken(accessToken);
+        shop.setShopifyShopId(shopInfo.get("id").asText());
+        shop.setShopName(shopInfo.get("name").asText());
+        shop.setEmail(shopInfo.get("email").asText());
+        shop.setCountryCode(shopInfo.get("country_code").asText());
+        shop.setCurrency(shopInfo.get("currency").asText());
+        shop.setIsActive(true);
+        shop.setInstalledAt(LocalDateTime.now());
+        shop.setSubscriptionStatus(Shop.SubscriptionStatus.TRIAL);
+        shop.setTrialEndsAt(LocalDateTime.now().plusDays(14));
 
-            shop = shopRepository.save(shop);
+        shop = shopRepository.save(shop);
 
-            // Configurer les webhooks
-            setupWebhooks(shop);
+        // Configurer les webhooks
+        setupWebhooks(shop);
 
-            auditLogService.log(shop, AuditLog.ActionType.SHOP_INSTALLED, "Shop", shop.getId(),
-                "Application installée sur " + normalizedDomain);
+        auditLogService.log(shop, AuditLog.ActionType.SHOP_INSTALLED, "Shop", shop.getId(),
+            "Application installée sur " + normalizedDomain);
 
-            log.info("Boutique installée: {}", normalizedDomain);
-            return shop;
-        }
+        log.info("Boutique installée: {}", normalizedDomain);
+        return shop;
     }
 
     /**
@@ -201,90 +212,105 @@ public class ShopifyService {
                                 @Nonnull String accessToken) throws Exception {
         String url = String.format("https://%s/admin/api/%s/shop.json", shopDomain, SHOPIFY_API_VERSION);
 
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpGet request = new HttpGet(url);
-            request.setHeader("X-Shopify-Access-Token", accessToken);
+        HttpGet request = new HttpGet(url);
+        request.setHeader("X-Shopify-Access-Token", accessToken);
 
-            String response = client.execute(request, httpResponse ->
-                new String(httpResponse.getEntity().getContent().readAllBytes()));
+        String response = httpClient.execute(request, httpResponse ->
+            new String(httpResponse.getEntity().getContent().readAllBytes()));
 
-            return objectMapper.readTree(response).get("shop");
-        }
+        return objectMapper.readTree(response).get("shop");
     }
 
     /**
-     * Traite une commande Shopify
+     * Traite une commande Shopify déjà lue (voir {@link ShopifyOrderReader})
+     *
+     * @param rawJson JSON d'origine de la commande, conservé pour audit
      */
     @Transactional
     @Nonnull
     public Order processOrder(@Nonnull Shop shop,
-                              @Nonnull JsonNode orderJson) {
-        String shopifyOrderId = orderJson.get("id").asText();
+                              @Nonnull ShopifyOrderDto orderDto,
+                              @Nonnull String rawJson) {
+        String shopifyOrderId = orderDto.getId();
+        if (shopifyOrderId == null) {
+            throw new RuntimeException("Commande Shopify sans identifiant");
+        }
+
+        // Vérifier si la commande existe déjà (verrouillée : les livraisons d'une même commande s'écrivent l'une après l'autre)
+        Optional<Order> existing = orderRepository.findForUpdate(shop, shopifyOrderId);
+
+        // Livraison périmée (retentée ou reçue en retard) : la version enregistrée est plus récente, rien n'est écrit
+        LocalDateTime storedVersion = existing.map(Order::getShopifyUpdatedAt).orElse(null);
+        if (storedVersion != null && orderDto.getUpdatedAt() != null && orderDto.getUpdatedAt().isBefore(storedVersion)) {
+            log.debug("Commande {} ignorée: version {} antérieure à la version enregistrée {}",
+                shopifyOrderId, orderDto.getUpdatedAt(), storedVersion);
+            return existing.get();
+        }
 
-        // Vérifier si la commande existe déjà
-        Optional<Order> existing = orderRepository.findByShopAndShopifyOrderId(shop, shopifyOrderId);
         Order order = existing.orElse(new Order());
+        OssThresholdService.Contribution previousContribution = ossThresholdService.contributionOf(shop, order);
+        SalesRollupService.Snapshot previousStats = salesRollupService.snapshotOf(order);
 
         order.setShop(shop);
         order.setShopifyOrderId(shopifyOrderId);
-        order.setOrderNumber(orderJson.has("order_number") ? orderJson.get("order_number").asText() : null);
+        order.setOrderNumber(orderDto.getOrderNumber());
+        if (orderDto.getUpdatedAt() != null) {
+            order.setShopifyUpdatedAt(orderDto.getUpdatedAt());
+        }
 
         // Date de commande
-        if (orderJson.has("created_at")) {
-            order.setOrderDate(parseShopifyDate(orderJson.get("created_at").asText()));
+        if (orderDto.getCreatedAt() != null) {
+            order.setOrderDate(orderDto.getCreatedAt());
         }
 
         // Informations client
-        JsonNode billingAddress = orderJson.get("billing_address");
-        if (billingAddress != null && !billingAddress.isNull()) {
-            order.setCustomerCountryCode(billingAddress.has("country_code") ?
-                billingAddress.get("country_code").asText() : null);
-            order.setCustomerCountryName(billingAddress.has("country") ?
-                billingAddress.get("country").asText() : null);
+        ShopifyOrderDto.AddressDto billingAddress = orderDto.getBillingAddress();
+        if (billingAddress != null) {
+            order.setCustomerCountryCode(billingAddress.getCountryCode());
+            order.setCustomerCountryName(billingAddress.getCountry());
         }
 
-        if (orderJson.has("email")) {
-            order.setCustomerEmail(orderJson.get("email").asText());
+        if (orderDto.getEmail() != null) {
+            order.setCustomerEmail(orderDto.getEmail());
         }
 
         // Numéro de TVA client (si présent dans les notes ou attributs)
-        String customerVat = extractCustomerVatNumber(orderJson);
+        String customerVat = extractCustomerVatNumber(orderDto);
         order.setCustomerVatNumber(customerVat);
         order.setIsB2b(customerVat != null && !customerVat.isEmpty());
 
         // Montants
-        order.setTotalAmount(parseDecimal(orderJson, "total_price"));
-        order.setSubtotalAmount(parseDecimal(orderJson, "subtotal_price"));
-        order.setTaxAmount(parseDecimal(orderJson, "total_tax"));
-        order.setCurrency(orderJson.has("currency") ? orderJson.get("currency").asText() : "EUR");
+        order.setTotalAmount(amountOrZero(orderDto.getTotalPrice()));
+        order.setSubtotalAmount(amountOrZero(orderDto.getSubtotalPrice()));
+        order.setTaxAmount(amountOrZero(orderDto.getTotalTax()));
+        order.setCurrency(orderDto.getCurrency() != null ? orderDto.getCurrency() : "EUR");
 
         // Calcul du taux de TVA appliqué
-        if (orderJson.has("tax_lines") && orderJson.get("tax_lines").isArray() && orderJson.get("tax_lines").size() > 0) {
-            JsonNode firstTaxLine = orderJson.get("tax_lines").get(0);
-            if (firstTaxLine.has("rate")) {
-                BigDecimal rate = new BigDecimal(firstTaxLine.get("rate").asText()).multiply(BigDecimal.valueOf(100));
-                order.setAppliedVatRate(rate);
-            }
+        List<ShopifyOrderDto.TaxLineDto> taxLines = orderDto.getTaxLines();
+        if (taxLines != null && !taxLines.isEmpty() && taxLines.get(0).getRate() != null) {
+            order.setAppliedVatRate(taxLines.get(0).getRate().multiply(BigDecimal.valueOf(100)));
         }
 
         // Livraison
-        order.setShippingAmount(parseDecimal(orderJson, "total_shipping_price_set", "shop_money", "amount"));
+        order.setShippingAmount(amountOrZero(orderDto.getTotalShippingPrice()));
 
         // Statuts
-        if (orderJson.has("financial_status")) {
+        if (orderDto.getFinancialStatus() != null) {
             try {
-                order.setFinancialStatus(Order.FinancialStatus.valueOf(
-                    orderJson.get("financial_status").asText().toUpperCase()));
+                order.setFinancialStatus(Order.FinancialStatus.valueOf(orderDto.getFinancialStatus().toUpperCase()));
             } catch (IllegalArgumentException e) {
                 order.setFinancialStatus(Order.FinancialStatus.PENDING);
             }
         }
 
         // Données brutes pour audit
-        order.setRawData(orderJson.toString());
+        order.setRawData(rawJson);
 
         order = orderRepository.save(order);
 
+        // Mettre à jour le cumul du seuil OSS
+        ossThresholdService.applyChange(shop, previousContribution, ossThresholdService.contributionOf(shop, order));
+
         // Valider le numéro de TVA si B2B
         if (Boolean.TRUE.equals(order.getIsB2b()) && customerVat != null) {
             viesValidationService.validateVatNumberAsync(shop, customerVat, shopifyOrderId);
@@ -293,65 +319,72 @@ public class ShopifyService {
         // Détecter les erreurs de TVA
         vatCalculationService.detectVatErrors(order);
 
+        // Mettre à jour les agrégats du tableau de bord (après détection des erreurs)
+        salesRollupService.applyChange(shop, previousStats, salesRollupService.snapshotOf(order));
+
         log.debug("Commande traitée: {} - {}", shopifyOrderId, order.getOrderNumber());
         return order;
     }
 
     /**
-     * Traite un webhook de commande
+     * Traite un webhook de commande (appelé par les workers de {@link WebhookInboxService}).
+     * Toute erreur est propagée pour que la livraison soit retentée.
      */
-    @Async
     @Transactional
     public void processOrderWebhook(@Nonnull String shopDomain,
                                     @Nonnull String payload) {
-        try {
-            JsonNode orderJson = objectMapper.readTree(payload);
-            Shop shop = shopRepository.findByShopifyDomain(shopDomain)
-                .orElseThrow(() -> new RuntimeException("Boutique non trouvée: " + shopDomain));
-
-            processOrder(shop, orderJson);
-        } catch (Exception e) {
-            log.error("Erreur traitement webhook commande: {}", e.getMessage());
+        ShopifyOrderDto orderDto;
+        try (JsonParser parser = objectMapper.createParser(payload)) {
+            orderDto = ShopifyOrderReader.readOrder(parser);
+        } catch (IOException e) {
+            throw new RuntimeException("Webhook commande illisible: " + e.getMessage(), e);
         }
+        Shop shop = shopRepository.findByShopifyDomain(shopDomain)
+            .orElseThrow(() -> new RuntimeException("Boutique non trouvée: " + shopDomain));
+
+        processOrder(shop, orderDto, payload);
     }
 
     /**
-     * Traite un remboursement
+     * Traite un remboursement (appelé par les workers de {@link WebhookInboxService}).
+     * Toute erreur est propagée pour que la livraison soit retentée.
      */
-    @Async
     @Transactional
     public void processRefundWebhook(@Nonnull String shopDomain,
                                      @Nonnull String payload) {
+        JsonNode refundJson;
         try {
-            JsonNode refundJson = objectMapper.readTree(payload);
-            Shop shop = shopRepository.findByShopifyDomain(shopDomain)
-                .orElseThrow(() -> new RuntimeException("Boutique non trouvée: " + shopDomain));
-
-            String orderId = refundJson.get("order_id").asText();
-            orderRepository.findByShopAndShopifyOrderId(shop, orderId).ifPresent(order -> {
-                order.setIsRefunded(true);
-
-                // Calculer le montant remboursé
-                BigDecimal refundAmount = BigDecimal.ZERO;
-                if (refundJson.has("transactions") && refundJson.get("transactions").isArray()) {
-                    for (JsonNode transaction : refundJson.get("transactions")) {
-                        if (transaction.has("amount")) {
-                            refundAmount = refundAmount.add(new BigDecimal(transaction.get("amount").asText()));
-                        }
+            refundJson = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            throw new RuntimeException("Webhook remboursement illisible: " + e.getMessage(), e);
+        }
+        Shop shop = shopRepository.findByShopifyDomain(shopDomain)
+            .orElseThrow(() -> new RuntimeException("Boutique non trouvée: " + shopDomain));
+
+        String orderId = refundJson.get("order_id").asText();
+        orderRepository.findByShopAndShopifyOrderId(shop, orderId).ifPresent(order -> {
+            OssThresholdService.Contribution previousContribution = ossThresholdService.contributionOf(shop, order);
+            order.setIsRefunded(true);
+
+            // Calculer le montant remboursé
+            BigDecimal refundAmount = BigDecimal.ZERO;
+            if (refundJson.has("transactions") && refundJson.get("transactions").isArray()) {
+                for (JsonNode transaction : refundJson.get("transactions")) {
+                    if (transaction.has("amount")) {
+                        refundAmount = refundAmount.add(new BigDecimal(transaction.get("amount").asText()));
                     }
                 }
-                order.setRefundAmount(refundAmount);
+            }
+            order.setRefundAmount(refundAmount);
 
-                orderRepository.save(order);
+            orderRepository.save(order);
+            ossThresholdService.applyChange(shop, previousContribution, ossThresholdService.contributionOf(shop, order));
 
-                auditLogService.log(shop, AuditLog.ActionType.ORDER_REFUNDED, "Order", order.getId(),
-                    String.format("Remboursement de %.2f€", refundAmount));
+            auditLogService.log(shop, AuditLog.ActionType.ORDER_REFUNDED, "Order", order.getId(),
+                String.format("Remboursement de %.2f€", refundAmount));
 
-                log.info("Remboursement traité: order={}, montant={}", orderId, refundAmount);
-            });
-        } catch (Exception e) {
-            log.error("Erreur traitement webhook remboursement: {}", e.getMessage());
-        }
+            log.info("Remboursement traité: order={}, montant={}", orderId, refundAmount);
+        });
     }
 
     /**
@@ -372,55 +405,6 @@ public class ShopifyService {
         });
     }
 
-    /**
-     * Synchronise les commandes d'une boutique
-     */
-    @Transactional
-    public int syncOrders(@Nonnull Shop shop,
-                          @Nullable LocalDateTime since) {
-        log.info("Synchronisation des commandes pour {} depuis {}", shop.getShopifyDomain(), since);
-
-        int syncedCount = 0;
-        String pageInfo = null;
-
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            do {
-                String url = buildOrdersUrl(shop, since, pageInfo);
-                HttpGet request = new HttpGet(url);
-                request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
-
-                var response = client.execute(request, httpResponse -> {
-                    String body = new String(httpResponse.getEntity().getContent().readAllBytes());
-                    String linkHeader = httpResponse.getFirstHeader("Link") != null ?
-                        httpResponse.getFirstHeader("Link").getValue() : null;
-                    return Map.of("body", body, "link", linkHeader != null ? linkHeader : "");
-                });
-
-                JsonNode ordersJson = objectMapper.readTree(response.get("body")).get("orders");
-
-                if (ordersJson != null && ordersJson.isArray()) {
-                    for (JsonNode orderJson : ordersJson) {
-                        processOrder(shop, orderJson);
-                        syncedCount++;
-                    }
-                }
-
-                pageInfo = extractNextPageInfo(response.get("link"));
-
-            } while (pageInfo != null);
-
-            auditLogService.log(shop, AuditLog.ActionType.ORDERS_SYNCED, "Shop", shop.getId(),
-                String.format("%d commandes synchronisées", syncedCount));
-
-            log.info("Synchronisation terminée: {} commandes", syncedCount);
-
-        } catch (Exception e) {
-            log.error("Erreur synchronisation commandes: {}", e.getMessage());
-        }
-
-        return syncedCount;
-    }
-
     /**
      * Vérifie la signature d'un webhook
      */
@@ -440,24 +424,8 @@ public class ShopifyService {
     }
 
     @Nonnull
-    private String buildOrdersUrl(@Nonnull Shop shop,
-                                  @Nullable LocalDateTime since,
-                                  @Nullable String pageInfo) {
-        String baseUrl = String.format("https://%s/admin/api/%s/orders.json",
-            shop.getShopifyDomain(), SHOPIFY_API_VERSION);
-
-        if (pageInfo != null) {
-            return baseUrl + "?page_info=" + pageInfo + "&limit=250";
-        }
-
-        StringBuilder url = new StringBuilder(baseUrl);
-        url.append("?status=any&limit=250");
-
-        if (since != null) {
-            url.append("&created_at_min=").append(since.format(DateTimeFormatter.ISO_DATE_TIME));
-        }
-
-        return url.toString();
+    private BigDecimal amountOrZero(@Nullable BigDecimal amount) {
+        return amount != null ? amount : BigDecimal.ZERO;
     }
 
     /**
@@ -478,88 +446,55 @@ public class ShopifyService {
             )
         );
 
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpPost request = new HttpPost(url);
-            request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
-            request.setHeader("Content-Type", "application/json");
-            request.setEntity(new StringEntity(objectMapper.writeValueAsString(webhookData)));
-
-            client.execute(request, httpResponse -> {
-                int statusCode = httpResponse.getCode();
-                if (statusCode >= 200 && statusCode < 300) {
-                    log.info("Webhook créé: {} pour {}", topic, shop.getShopifyDomain());
-                } else {
-                    log.warn("Erreur création webhook {}: status {}", topic, statusCode);
-                }
-                return null;
-            });
-        }
+        HttpPost request = new HttpPost(url);
+        request.setHeader("X-Shopify-Access-Token", shop.getAccessToken());
+        request.setHeader("Content-Type", "application/json");
+        request.setEntity(new StringEntity(objectMapper.writeValueAsString(webhookData)));
+
+        httpClient.execute(request, httpResponse -> {
+            int statusCode = httpResponse.getCode();
+            if (statusCode >= 200 && statusCode < 300) {
+                log.info("Webhook créé: {} pour {}", topic, shop.getShopifyDomain());
+            } else {
+                log.warn("Erreur création webhook {}: status {}", topic, statusCode);
+            }
+            return null;
+        });
     }
 
     @Nullable
-    private String extractCustomerVatNumber(@Nonnull JsonNode orderJson) {
+    private String extractCustomerVatNumber(@Nonnull ShopifyOrderDto orderDto) {
         // Chercher dans les notes
-        if (orderJson.has("note") && !orderJson.get("note").isNull()) {
-            String note = orderJson.get("note").asText();
-            if (note.matches(".*[A-Z]{2}[0-9A-Z]+.*")) {
-                // Pattern simple de détection TVA
-                return extractVatFromText(note);
+        String note = orderDto.getNote();
+        if (note != null) {
+            // Détection simple d'un numéro de TVA dans la note
+            String vatNumber = VatNumberParser.find(note);
+            if (vatNumber != null) {
+                return vatNumber;
             }
         }
 
         // Chercher dans les attributs personnalisés
-        if (orderJson.has("note_attributes") && orderJson.get("note_attributes").isArray()) {
-            for (JsonNode attr : orderJson.get("note_attributes")) {
-                String name = attr.has("name") ? attr.get("name").asText().toLowerCase() : "";
+        if (orderDto.getNoteAttributes() != null) {
+            for (ShopifyOrderDto.NoteAttributeDto attr : orderDto.getNoteAttributes()) {
+                String name = attr.getName() != null ? attr.getName().toLowerCase() : "";
                 if (name.contains("vat") || name.contains("tva") || name.contains("tax")) {
-                    return attr.has("value") ? attr.get("value").asText() : null;
+                    return attr.getValue();
                 }
             }
         }
 
         // Chercher dans les métafields client
-        if (orderJson.has("customer") && !orderJson.get("customer").isNull()) {
-            JsonNode customer = orderJson.get("customer");
-            if (customer.has("metafields") && customer.get("metafields").isArray()) {
-                for (JsonNode mf : customer.get("metafields")) {
-                    String key = mf.has("key") ? mf.get("key").asText().toLowerCase() : "";
-                    if (key.contains("vat") || key.contains("tva")) {
-                        return mf.has("value") ? mf.get("value").asText() : null;
-                    }
-                }
-            }
-        }
-
-        return null;
-    }
-
-    @Nullable
-    private String extractNextPageInfo(@Nullable String linkHeader) {
-        if (linkHeader == null || linkHeader.isEmpty()) {
-            return null;
-        }
-
-        String[] links = linkHeader.split(",");
-        for (String link : links) {
-            if (link.contains("rel=\"next\"")) {
-                int start = link.indexOf("page_info=") + 10;
-                int end = link.indexOf(">", start);
-                if (start > 10 && end > start) {
-                    return link.substring(start, end);
+        ShopifyOrderDto.CustomerDto customer = orderDto.getCustomer();
+        if (customer != null && customer.getMetafields() != null) {
+            for (ShopifyOrderDto.MetafieldDto mf : customer.getMetafields()) {
+                String key = mf.getKey() != null ? mf.getKey().toLowerCase() : "";
+                if (key.contains("vat") || key.contains("tva")) {
+                    return mf.getValue();
                 }
             }
         }
-        return null;
-    }
 
-    @Nullable
-    private String extractVatFromText(@Nonnull String text) {
-        // Pattern basique pour extraire un numéro de TVA UE
-        Pattern pattern = Pattern.compile("([A-Z]{2}[0-9A-Z]{8,12})");
-        Matcher matcher = pattern.matcher(text.toUpperCase());
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
         return null;
     }
 
@@ -575,36 +510,6 @@ public class ShopifyService {
         return shopDomain;
     }
 
-    @Nonnull
-    private BigDecimal parseDecimal(@Nonnull JsonNode json,
-                                    @Nonnull String... path) {
-        JsonNode node = json;
-        for (String key : path) {
-            if (node == null || !node.has(key)) {
-                return BigDecimal.ZERO;
-            }
-            node = node.get(key);
-        }
-        try {
-            return new BigDecimal(node.asText());
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-
-    @Nonnull
-    private LocalDateTime parseShopifyDate(@Nonnull String dateStr) {
-        try {
-            return LocalDateTime.parse(dateStr, DateTimeFormatter.ISO_DATE_TIME);
-        } catch (Exception e) {
-            try {
-                return LocalDateTime.parse(dateStr, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-            } catch (Exception e2) {
-                return LocalDateTime.now();
-            }
-        }
-    }
-
     /**
      * Configure les webhooks Shopify
      */
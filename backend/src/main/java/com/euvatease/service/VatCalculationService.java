@@ -6,7 +6,6 @@ import com.euvatease.entity.Order;
 import com.euvatease.entity.Shop;
 import com.euvatease.entity.VatAlert;
 import com.euvatease.entity.VatValidation;
-import com.euvatease.repository.EuVatRateRepository;
 import com.euvatease.repository.OrderRepository;
 import com.euvatease.repository.VatAlertRepository;
 import com.euvatease.repository.VatValidationRepository;
@@ -23,6 +22,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -48,6 +48,12 @@ public class VatCalculationService {
         "PL", "PT", "RO", "SK", "SI", "ES", "SE"
     );
 
+    // Tolérance d'écart entre taux appliqué et taux attendu : 0.5%
+    private static final long RATE_TOLERANCE_BASIS_POINTS = 50;
+
+    // Nombre d'identifiants de commande par requête de recherche des validations VIES
+    private static final int VALIDATION_LOOKUP_BATCH_SIZE = 1000;
+
     //~ ------------------------------------------------------------------------------------------------
     //~ Instance fields
     //~ ------------------------------------------------------------------------------------------------
@@ -56,14 +62,20 @@ public class VatCalculationService {
     private final AuditLogService auditLogService;
 
     @Nonnull
-    private final EuVatRateRepository euVatRateRepository;
+    private final OrderRepository orderRepository;
 
     @Nonnull
-    private final OrderRepository orderRepository;
+    private final OssThresholdService ossThresholdService;
+
+    @Nonnull
+    private final SalesRollupService salesRollupService;
 
     @Nonnull
     private final VatAlertRepository vatAlertRepository;
 
+    @Nonnull
+    private final VatRateTable vatRateTable;
+
     @Nonnull
     private final VatValidationRepository vatValidationRepository;
 
@@ -72,14 +84,18 @@ public class VatCalculationService {
     //~ ------------------------------------------------------------------------------------------------
 
     public VatCalculationService(@Nonnull OrderRepository orderRepository,
-                                 @Nonnull EuVatRateRepository euVatRateRepository,
+                                 @Nonnull OssThresholdService ossThresholdService,
+                                 @Nonnull VatRateTable vatRateTable,
                                  @Nonnull VatValidationRepository vatValidationRepository,
                                  @Nonnull VatAlertRepository vatAlertRepository,
+                                 @Nonnull SalesRollupService salesRollupService,
                                  @Nonnull AuditLogService auditLogService) {
         this.orderRepository = Objects.requireNonNull(orderRepository, "orderRepository must not be null");
-        this.euVatRateRepository = Objects.requireNonNull(euVatRateRepository, "euVatRateRepository must not be null");
+        this.ossThresholdService = Objects.requireNonNull(ossThresholdService, "ossThresholdService must not be null");
+        this.vatRateTable = Objects.requireNonNull(vatRateTable, "vatRateTable must not be null");
         this.vatValidationRepository = Objects.requireNonNull(vatValidationRepository, "vatValidationRepository must not be null");
         this.vatAlertRepository = Objects.requireNonNull(vatAlertRepository, "vatAlertRepository must not be null");
+        this.salesRollupService = Objects.requireNonNull(salesRollupService, "salesRollupService must not be null");
         this.auditLogService = Objects.requireNonNull(auditLogService, "auditLogService must not be null");
     }
 
@@ -88,130 +104,25 @@ public class VatCalculationService {
     //~ ------------------------------------------------------------------------------------------------
 
     /**
-     * Analyse une commande et calcule la TVA attendue
+     * Ré-analyse les commandes d'une tranche [start, end[ dans sa propre transaction
      */
     @Transactional
     @Nonnull
-    public VatAnalysisResult analyzeOrder(@Nonnull Order order) {
-        VatAnalysisResult result = new VatAnalysisResult();
-        result.setOrderId(order.getId());
-        result.setShopifyOrderId(order.getShopifyOrderId());
-
-        String customerCountry = order.getCustomerCountryCode();
-        String shopCountry = order.getShop().getCountryCode();
-        boolean isOssRegistered = Boolean.TRUE.equals(order.getShop().getOssRegistered());
-
-        // Déterminer si c'est une vente UE
-        boolean isEuSale = EU_COUNTRIES.contains(customerCountry);
-        boolean isSameCountry = customerCountry != null && customerCountry.equals(shopCountry);
-        boolean isB2b = Boolean.TRUE.equals(order.getIsB2b());
-
-        result.setEuSale(isEuSale);
-        result.setDomesticSale(isSameCountry);
-        result.setB2b(isB2b);
-
-        if (!isEuSale) {
-            // Vente hors UE - pas de TVA UE
-            result.setExpectedVatRate(BigDecimal.ZERO);
-            result.setVatExempt(true);
-            result.setExemptionReason("Vente hors Union Européenne");
-            return result;
-        }
-
-        if (isSameCountry) {
-            // Vente domestique - TVA du pays du vendeur
-            result.setExpectedVatRate(getStandardVatRate(shopCountry));
-            return result;
-        }
-
-        // Vente intracommunautaire
-        if (isB2b && hasValidVatNumber(order)) {
-            // B2B avec TVA valide - exonération
-            result.setExpectedVatRate(BigDecimal.ZERO);
-            result.setVatExempt(true);
-            result.setExemptionReason("Livraison intracommunautaire B2B - TVA autoliquidée par l'acheteur");
-            return result;
-        }
-
-        // B2C ou B2B sans TVA valide
-        if (isOssRegistered) {
-            // OSS: TVA du pays de destination
-            result.setExpectedVatRate(getStandardVatRate(customerCountry));
-            result.setApplicableCountry(customerCountry);
-        } else {
-            // Non OSS: vérifier le seuil
-            // Hypothèse: si pas OSS, on applique la TVA du pays de l'acheteur (régime simplifié)
-            result.setExpectedVatRate(getStandardVatRate(customerCountry));
-            result.setApplicableCountry(customerCountry);
-        }
+    public AnalysisSummary analyzeChunk(@Nonnull Shop shop,
+                                        @Nonnull LocalDateTime start,
+                                        @Nonnull LocalDateTime end) {
+        List<Order> orders = orderRepository.findOrdersForReanalysis(shop, start, end);
 
-        return result;
+        return analyzeOrders(shop, orders);
     }
 
     /**
-     * Analyse toutes les commandes d'une boutique sur une période
+     * Analyse une commande et calcule la TVA attendue
      */
     @Transactional
     @Nonnull
-    public Map<String, Object> analyzeShopVat(@Nonnull Shop shop,
-                                              @Nonnull LocalDateTime start,
-                                              @Nonnull LocalDateTime end) {
-        List<Order> orders = orderRepository.findByShopAndOrderDateBetween(shop, start, end);
-
-        Map<String, Object> analysis = new HashMap<>();
-        int totalOrders = orders.size();
-        int errorsCount = 0;
-        BigDecimal totalSales = BigDecimal.ZERO;
-        BigDecimal totalVat = BigDecimal.ZERO;
-        BigDecimal vatDifference = BigDecimal.ZERO;
-        Map<String, BigDecimal> salesByCountry = new HashMap<>();
-        Map<String, BigDecimal> vatByCountry = new HashMap<>();
-        List<Map<String, Object>> errors = new ArrayList<>();
-
-        for (Order order : orders) {
-            detectVatErrors(order);
-
-            if (Boolean.TRUE.equals(order.getHasVatError())) {
-                errorsCount++;
-                errors.add(Map.of(
-                    "orderId", order.getShopifyOrderId(),
-                    "orderNumber", order.getOrderNumber() != null ? order.getOrderNumber() : "",
-                    "errorType", order.getVatErrorType() != null ? order.getVatErrorType() : "UNKNOWN",
-                    "appliedRate", order.getAppliedVatRate(),
-                    "expectedRate", order.getExpectedVatRate(),
-                    "difference", order.getVatDifference()
-                ));
-            }
-
-            totalSales = totalSales.add(order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO);
-            totalVat = totalVat.add(order.getTaxAmount() != null ? order.getTaxAmount() : BigDecimal.ZERO);
-            vatDifference = vatDifference.add(order.getVatDifference() != null ? order.getVatDifference() : BigDecimal.ZERO);
-
-            String country = order.getCustomerCountryCode();
-            if (country != null) {
-                salesByCountry.merge(country, order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO, BigDecimal::add);
-                vatByCountry.merge(country, order.getTaxAmount() != null ? order.getTaxAmount() : BigDecimal.ZERO, BigDecimal::add);
-            }
-        }
-
-        analysis.put("totalOrders", totalOrders);
-        analysis.put("errorsCount", errorsCount);
-        analysis.put("errorRate", totalOrders > 0 ? (errorsCount * 100.0 / totalOrders) : 0);
-        analysis.put("totalSales", totalSales);
-        analysis.put("totalVat", totalVat);
-        analysis.put("vatDifference", vatDifference);
-        analysis.put("salesByCountry", salesByCountry);
-        analysis.put("vatByCountry", vatByCountry);
-        analysis.put("errors", errors);
-        analysis.put("periodStart", start);
-        analysis.put("periodEnd", end);
-
-        // Créer des alertes si nécessaire
-        if (errorsCount > 0) {
-            createVatErrorAlert(shop, errorsCount, errors);
-        }
-
-        return analysis;
+    public VatAnalysisResult analyzeOrder(@Nonnull Order order) {
+        return analyzeOrder(order, null);
     }
 
     /**
@@ -220,13 +131,8 @@ public class VatCalculationService {
     @Transactional
     @Nonnull
     public Map<String, Object> checkOssThreshold(@Nonnull Shop shop) {
-        String homeCountry = shop.getCountryCode();
-        LocalDateTime yearStart = LocalDateTime.now().withDayOfYear(1).withHour(0).withMinute(0).withSecond(0);
-
-        BigDecimal euSales = orderRepository.sumEuSalesForOssThreshold(shop, homeCountry, yearStart);
-        if (euSales == null) {
-            euSales = BigDecimal.ZERO;
-        }
+        // Cumul annuel maintenu à l'ingestion des commandes
+        BigDecimal euSales = ossThresholdService.getEuSales(shop, LocalDate.now().getYear());
 
         BigDecimal threshold = BigDecimal.valueOf(10000);
         BigDecimal percentage = euSales.multiply(BigDecimal.valueOf(100)).divide(threshold, 2, RoundingMode.HALF_UP);
@@ -255,47 +161,7 @@ public class VatCalculationService {
     @Transactional
     @Nonnull
     public Order detectVatErrors(@Nonnull Order order) {
-        VatAnalysisResult analysis = analyzeOrder(order);
-
-        BigDecimal appliedRate = order.getAppliedVatRate();
-        BigDecimal expectedRate = analysis.getExpectedVatRate();
-
-        if (appliedRate == null) {
-            appliedRate = BigDecimal.ZERO;
-        }
-        if (expectedRate == null) {
-            expectedRate = BigDecimal.ZERO;
-        }
-
-        // Calculer la TVA attendue
-        BigDecimal subtotal = order.getSubtotalAmount() != null ? order.getSubtotalAmount() : BigDecimal.ZERO;
-        BigDecimal calculatedVat = subtotal.multiply(expectedRate).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-
-        order.setExpectedVatRate(expectedRate);
-        order.setCalculatedVatAmount(calculatedVat);
-
-        // Détecter les erreurs
-        BigDecimal difference = appliedRate.subtract(expectedRate).abs();
-        boolean hasError = difference.compareTo(BigDecimal.valueOf(0.5)) > 0; // Tolérance de 0.5%
-
-        order.setHasVatError(hasError);
-
-        if (hasError) {
-            String errorType = determineErrorType(appliedRate, expectedRate, order);
-            order.setVatErrorType(errorType);
-
-            // Calculer la différence de TVA
-            BigDecimal actualVat = order.getTaxAmount() != null ? order.getTaxAmount() : BigDecimal.ZERO;
-            order.setVatDifference(calculatedVat.subtract(actualVat));
-
-            log.warn("Erreur TVA détectée: order={}, appliqué={}%, attendu={}%, type={}",
-                order.getOrderNumber(), appliedRate, expectedRate, errorType);
-        }
-
-        // Mise à jour exonération
-        order.setVatExempt(analysis.isVatExempt());
-        order.setVatExemptReason(analysis.getExemptionReason());
-
+        detectVatErrors(order, null);
         return orderRepository.save(order);
     }
 
@@ -304,10 +170,10 @@ public class VatCalculationService {
      */
     @Nonnull
     public List<Map<String, Object>> getAllEuVatRates() {
-        var rates = euVatRateRepository.findAllEuCountries(LocalDate.now());
-        List<Map<String, Object>> result = new ArrayList<>();
+        List<VatRateTable.Entry> rates = vatRateTable.getEuRates(LocalDate.now());
+        List<Map<String, Object>> result = new ArrayList<>(rates.size());
 
-        for (var rate : rates) {
+        for (VatRateTable.Entry rate : rates) {
             Map<String, Object> rateMap = new HashMap<>();
             rateMap.put("countryCode", rate.getCountryCode());
             rateMap.put("countryName", rate.getCountryName());
@@ -327,8 +193,121 @@ public class VatCalculationService {
         if (countryCode == null) {
             return BigDecimal.ZERO;
         }
-        return euVatRateRepository.findStandardRateByCountryCode(countryCode, LocalDate.now())
-            .orElse(BigDecimal.ZERO);
+        BigDecimal rate = vatRateTable.getStandardRate(countryCode, LocalDate.now());
+        return rate != null ? rate : BigDecimal.ZERO;
+    }
+
+    /**
+     * Construit le résultat d'analyse d'une période et crée l'alerte si des erreurs ont été détectées
+     */
+    @Transactional
+    @Nonnull
+    public Map<String, Object> summarizeAnalysis(@Nonnull Shop shop,
+                                                 @Nonnull AnalysisSummary summary,
+                                                 @Nonnull LocalDateTime start,
+                                                 @Nonnull LocalDateTime end) {
+        int totalOrders = summary.totalOrders;
+        int errorsCount = summary.errors.size();
+
+        Map<String, Object> analysis = new HashMap<>();
+        analysis.put("totalOrders", totalOrders);
+        analysis.put("errorsCount", errorsCount);
+        analysis.put("errorRate", totalOrders > 0 ? (errorsCount * 100.0 / totalOrders) : 0);
+        analysis.put("totalSales", summary.totalSales.toAmount());
+        analysis.put("totalVat", summary.totalVat.toAmount());
+        analysis.put("vatDifference", summary.vatDifference.toAmount());
+        analysis.put("salesByCountry", toAmounts(summary.salesByCountry));
+        analysis.put("vatByCountry", toAmounts(summary.vatByCountry));
+        analysis.put("errors", summary.errors);
+        analysis.put("periodStart", start);
+        analysis.put("periodEnd", end);
+
+        // Créer des alertes si nécessaire
+        if (errorsCount > 0) {
+            createVatErrorAlert(shop, errorsCount, summary.errors);
+        }
+
+        return analysis;
+    }
+
+    /**
+     * Analyse une commande ; {@code validatedOrderIds} est le résultat d'une recherche groupée
+     * des validations VIES (null : recherche unitaire)
+     */
+    @Nonnull
+    private VatAnalysisResult analyzeOrder(@Nonnull Order order,
+                                           @Nullable Set<Long> validatedOrderIds) {
+        VatAnalysisResult result = new VatAnalysisResult();
+        result.setOrderId(order.getId());
+        result.setShopifyOrderId(order.getShopifyOrderId());
+
+        String customerCountry = order.getCustomerCountryCode();
+        String shopCountry = order.getShop().getCountryCode();
+        boolean isOssRegistered = Boolean.TRUE.equals(order.getShop().getOssRegistered());
+
+        // Déterminer si c'est une vente UE
+        boolean isEuSale = EU_COUNTRIES.contains(customerCountry);
+        boolean isSameCountry = customerCountry != null && customerCountry.equals(shopCountry);
+        boolean isB2b = Boolean.TRUE.equals(order.getIsB2b());
+
+        result.setEuSale(isEuSale);
+        result.setDomesticSale(isSameCountry);
+        result.setB2b(isB2b);
+
+        if (!isEuSale) {
+            // Vente hors UE - pas de TVA UE
+            result.setExpectedVatRate(BigDecimal.ZERO);
+            result.setVatExempt(true);
+            result.setExemptionReason("Vente hors Union Européenne");
+            return result;
+        }
+
+        if (isSameCountry) {
+            // Vente domestique - TVA du pays du vendeur
+            result.setExpectedVatRate(getStandardVatRate(shopCountry));
+            return result;
+        }
+
+        // Vente intracommunautaire
+        if (isB2b && hasValidVatNumber(order, validatedOrderIds)) {
+            // B2B avec TVA valide - exonération
+            result.setExpectedVatRate(BigDecimal.ZERO);
+            result.setVatExempt(true);
+            result.setExemptionReason("Livraison intracommunautaire B2B - TVA autoliquidée par l'acheteur");
+            return result;
+        }
+
+        // B2C ou B2B sans TVA valide
+        if (isOssRegistered) {
+            // OSS: TVA du pays de destination
+            result.setExpectedVatRate(getStandardVatRate(customerCountry));
+            result.setApplicableCountry(customerCountry);
+        } else {
+            // Non OSS: vérifier le seuil
+            // Hypothèse: si pas OSS, on applique la TVA du pays de l'acheteur (régime simplifié)
+            result.setExpectedVatRate(getStandardVatRate(customerCountry));
+            result.setApplicableCountry(customerCountry);
+        }
+
+        return result;
+    }
+
+    /**
+     * Détecte les erreurs de TVA d'un lot de commandes et ajuste les agrégats du tableau de bord
+     */
+    @Nonnull
+    private AnalysisSummary analyzeOrders(@Nonnull Shop shop,
+                                          @Nonnull List<Order> orders) {
+        Set<Long> validatedOrderIds = findValidatedOrderIds(orders);
+
+        AnalysisSummary summary = new AnalysisSummary();
+        for (Order order : orders) {
+            SalesRollupService.Snapshot before = salesRollupService.snapshotOf(order);
+            long vatDifferenceCents = detectVatErrors(order, validatedOrderIds);
+            summary.add(orderRepository.save(order), vatDifferenceCents);
+            salesRollupService.applyChange(shop, before, salesRollupService.snapshotOf(order));
+        }
+        return summary;
     }
 
     private void createOssThresholdAlert(@Nonnull Shop shop,
@@ -411,14 +390,185 @@ public class VatCalculationService {
         return "VAT_WRONG_COUNTRY";
     }
 
-    private boolean hasValidVatNumber(@Nonnull Order order) {
+    /**
+     * Met à jour le taux attendu, la TVA calculée et l'erreur éventuelle de la commande, sans l'enregistrer.
+     * Montants et taux sont convertis une fois en centimes et points de base ; seuls les champs de l'entité reçoivent
+     * un {@link BigDecimal}.
+     *
+     * @return l'écart de TVA de la commande en centimes, ou {@link Money#NOT_REPRESENTABLE}
+     */
+    private long detectVatErrors(@Nonnull Order order,
+                                 @Nullable Set<Long> validatedOrderIds) {
+        VatAnalysisResult analysis = analyzeOrder(order, validatedOrderIds);
+
+        BigDecimal appliedRate = order.getAppliedVatRate();
+        BigDecimal expectedRate = analysis.getExpectedVatRate();
+
+        if (appliedRate == null) {
+            appliedRate = BigDecimal.ZERO;
+        }
+        if (expectedRate == null) {
+            expectedRate = BigDecimal.ZERO;
+        }
+
+        long appliedBasisPoints = Money.toBasisPoints(appliedRate);
+        long expectedBasisPoints = Money.toBasisPoints(expectedRate);
+
+        // Calculer la TVA attendue
+        BigDecimal subtotal = order.getSubtotalAmount() != null ? order.getSubtotalAmount() : BigDecimal.ZERO;
+        long calculatedVatCents = Money.vatCents(Money.toCents(subtotal), expectedBasisPoints);
+        BigDecimal calculatedVat = calculatedVatCents != Money.NOT_REPRESENTABLE
+            ? Money.toAmount(calculatedVatCents)
+            : Money.vatAmount(subtotal, expectedRate);
+
+        order.setExpectedVatRate(expectedRate);
+        order.setCalculatedVatAmount(calculatedVat);
+
+        // Détecter les erreurs
+        boolean hasError = Money.exceedsRateTolerance(appliedBasisPoints, expectedBasisPoints,
+            appliedRate, expectedRate, RATE_TOLERANCE_BASIS_POINTS);
+
+        order.setHasVatError(hasError);
+
+        // Sans erreur, l'écart déjà enregistré sur la commande est conservé
+        long vatDifferenceCents;
+        if (hasError) {
+            String errorType = determineErrorType(appliedRate, expectedRate, order);
+            order.setVatErrorType(errorType);
+
+            // Calculer la différence de TVA
+            long actualVatCents = Money.toCents(order.getTaxAmount());
+            if (calculatedVatCents != Money.NOT_REPRESENTABLE && actualVatCents != Money.NOT_REPRESENTABLE) {
+                vatDifferenceCents = calculatedVatCents - actualVatCents;
+                order.setVatDifference(Money.toAmount(vatDifferenceCents));
+            } else {
+                BigDecimal actualVat = order.getTaxAmount() != null ? order.getTaxAmount() : BigDecimal.ZERO;
+                order.setVatDifference(calculatedVat.subtract(actualVat));
+                vatDifferenceCents = Money.toCents(order.getVatDifference());
+            }
+
+            log.warn("Erreur TVA détectée: order={}, appliqué={}%, attendu={}%, type={}",
+                order.getOrderNumber(), appliedRate, expectedRate, errorType);
+        } else {
+            vatDifferenceCents = Money.toCents(order.getVatDifference());
+        }
+
+        // Mise à jour exonération
+        order.setVatExempt(analysis.isVatExempt());
+        order.setVatExemptReason(analysis.getExemptionReason());
+
+        return vatDifferenceCents;
+    }
+
+    /**
+     * Identifiants des commandes B2B ayant une validation VIES valide, en une requête par lot
+     */
+    @Nonnull
+    private Set<Long> findValidatedOrderIds(@Nonnull List<Order> orders) {
+        List<Long> b2bOrderIds = new ArrayList<>();
+        for (Order order : orders) {
+            if (Boolean.TRUE.equals(order.getIsB2b()) && order.getId() != null
+                    && order.getCustomerVatNumber() != null && !order.getCustomerVatNumber().isEmpty()) {
+                b2bOrderIds.add(order.getId());
+            }
+        }
+
+        Set<Long> validated = new HashSet<>();
+        for (int from = 0; from < b2bOrderIds.size(); from += VALIDATION_LOOKUP_BATCH_SIZE) {
+            int to = Math.min(from + VALIDATION_LOOKUP_BATCH_SIZE, b2bOrderIds.size());
+            validated.addAll(vatValidationRepository.findValidatedOrderIds(b2bOrderIds.subList(from, to)));
+        }
+        return validated;
+    }
+
+    private boolean hasValidVatNumber(@Nonnull Order order,
+                                      @Nullable Set<Long> validatedOrderIds) {
         if (order.getCustomerVatNumber() == null || order.getCustomerVatNumber().isEmpty()) {
             return false;
         }
 
+        if (validatedOrderIds != null) {
+            return validatedOrderIds.contains(order.getId());
+        }
+
         // Vérifier si une validation VIES existe
         List<VatValidation> validations = vatValidationRepository.findByOrderId(order.getId());
         return validations.stream()
             .anyMatch(v -> v.getValidationStatus() == VatValidation.ValidationStatus.VALID);
     }
+
+    @Nonnull
+    private static Map<String, BigDecimal> toAmounts(@Nonnull Map<String, Money.Sum> sums) {
+        Map<String, BigDecimal> amounts = new HashMap<>();
+        sums.forEach((country, sum) -> amounts.put(country, sum.toAmount()));
+        return amounts;
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Cumuls d'analyse TVA d'un ensemble de commandes, fusionnables tranche par tranche
+     */
+    public static final class AnalysisSummary {
+
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private final Map<String, Money.Sum> salesByCountry = new HashMap<>();
+        private int totalOrders;
+        private final Money.Sum totalSales = new Money.Sum();
+        private final Money.Sum totalVat = new Money.Sum();
+        private final Map<String, Money.Sum> vatByCountry = new HashMap<>();
+        private final Money.Sum vatDifference = new Money.Sum();
+
+        /**
+         * Ajoute une commande déjà analysée par {@link #detectVatErrors}, avec l'écart de TVA en centimes qu'elle a
+         * renvoyé. Chaque montant de la commande n'est converti qu'une fois en centimes.
+         */
+        public void add(@Nonnull Order order,
+                        long vatDifferenceCents) {
+            totalOrders++;
+
+            if (Boolean.TRUE.equals(order.getHasVatError())) {
+                // Les taux peuvent être absents (commande sans ligne de taxe) : Map.of refuse les valeurs nulles
+                Map<String, Object> error = new HashMap<>();
+                error.put("orderId", order.getShopifyOrderId());
+                error.put("orderNumber", order.getOrderNumber() != null ? order.getOrderNumber() : "");
+                error.put("errorType", order.getVatErrorType() != null ? order.getVatErrorType() : "UNKNOWN");
+                error.put("appliedRate", order.getAppliedVatRate());
+                error.put("expectedRate", order.getExpectedVatRate());
+                error.put("difference", order.getVatDifference());
+                errors.add(error);
+            }
+
+            long totalCents = Money.toCents(order.getTotalAmount());
+            long taxCents = Money.toCents(order.getTaxAmount());
+            totalSales.add(totalCents, order.getTotalAmount());
+            totalVat.add(taxCents, order.getTaxAmount());
+            vatDifference.add(vatDifferenceCents, order.getVatDifference());
+
+            String country = order.getCustomerCountryCode();
+            if (country != null) {
+                salesByCountry.computeIfAbsent(country, k -> new Money.Sum()).add(totalCents, order.getTotalAmount());
+                vatByCountry.computeIfAbsent(country, k -> new Money.Sum()).add(taxCents, order.getTaxAmount());
+            }
+        }
+
+        public int getTotalOrders() {
+            return totalOrders;
+        }
+
+        /**
+         * Fusionne les cumuls d'une autre tranche dans celle-ci
+         */
+        public void merge(@Nonnull AnalysisSummary other) {
+            totalOrders += other.totalOrders;
+            errors.addAll(other.errors);
+            totalSales.add(other.totalSales);
+            totalVat.add(other.totalVat);
+            vatDifference.add(other.vatDifference);
+            other.salesByCountry.forEach((country, sum) -> salesByCountry.computeIfAbsent(country, k -> new Money.Sum()).add(sum));
+            other.vatByCountry.forEach((country, sum) -> vatByCountry.computeIfAbsent(country, k -> new Money.Sum()).add(sum));
+        }
+    }
 }
@@ -0,0 +1,445 @@
+package com.euvatease.service;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Normalisation et contrôle des numéros de TVA intracommunautaire, sans expression régulière.
+ * La normalisation est une seule passe sur les caractères (aucune allocation si le numéro est déjà normalisé) ;
+ * le contrôle passe par une table indexée par préfixe pays : longueurs et classes de caractères admises, puis clé de
+ * contrôle pour les États membres qui en définissent une. Un numéro rejeté ici n'est jamais envoyé à VIES.
+ */
+final class VatNumberParser {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    // Formats indexés par préfixe (26 x 26) ; EL (préfixe VIES de la Grèce) partage le format de GR
+    private static final Format[] FORMATS = new Format[26 * 26];
+
+    // Longueur maximale d'un numéro hors préfixe pays
+    private static final int MAX_BODY_LENGTH = 12;
+
+    static {
+        // Gabarits du numéro hors préfixe : 9 chiffre, A lettre, X chiffre ou lettre, tout autre caractère à l'identique
+        register("AT", VatNumberParser::checkAustria, "U99999999");
+        register("BE", VatNumberParser::checkBelgium, "9999999999");
+        register("BG", null, "999999999", "9999999999");
+        register("CY", null, "99999999A");
+        register("CZ", null, "99999999", "999999999", "9999999999");
+        register("DE", VatNumberParser::checkGermany, "999999999");
+        register("DK", VatNumberParser::checkDenmark, "99999999");
+        register("EE", VatNumberParser::checkEstonia, "999999999");
+        register("ES", null, "X9999999X");
+        register("FI", VatNumberParser::checkFinland, "99999999");
+        register("FR", VatNumberParser::checkFrance, "XX999999999");
+        register("GR", VatNumberParser::checkGreece, "999999999");
+        register("HR", VatNumberParser::checkCroatia, "99999999999");
+        register("HU", VatNumberParser::checkHungary, "99999999");
+        register("IE", null, "9999999A", "9999999AA", "9A99999A");
+        register("IT", VatNumberParser::checkItaly, "99999999999");
+        register("LT", null, "999999999", "9999999999", "99999999999", "999999999999");
+        register("LU", VatNumberParser::checkLuxembourg, "99999999");
+        register("LV", null, "99999999999");
+        register("MT", null, "99999999");
+        register("NL", VatNumberParser::checkNetherlands, "999999999B99");
+        register("PL", VatNumberParser::checkPoland, "9999999999");
+        register("PT", VatNumberParser::checkPortugal, "999999999");
+        register("RO", VatNumberParser::checkRomania, "99", "999", "9999", "99999", "999999", "9999999", "99999999",
+            "999999999", "9999999999");
+        register("SE", VatNumberParser::checkSweden, "999999999999");
+        register("SI", VatNumberParser::checkSlovenia, "99999999");
+        register("SK", VatNumberParser::checkSlovakia, "9999999999");
+        FORMATS[index('E', 'L')] = FORMATS[index('G', 'R')];
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    private VatNumberParser() {
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Code pays UE d'un numéro normalisé (EL est ramené à GR), ou null si le préfixe n'est pas celui d'un État membre
+     */
+    @Nullable
+    static String countryCode(@Nonnull String vatNumber) {
+        Format format = format(vatNumber);
+        return format != null ? format.countryCode : null;
+    }
+
+    /**
+     * Premier numéro de TVA apparent dans un texte libre : deux lettres suivies de 8 à 12 chiffres ou lettres
+     * (casse ignorée, mêmes correspondances que {@code [A-Z]{2}[0-9A-Z]{8,12}} sur le texte en majuscules)
+     */
+    @Nullable
+    static String find(@Nonnull String text) {
+        int length = text.length();
+        for (int start = 0; start + 10 <= length; start++) {
+            if (!isLetter(text.charAt(start)) || !isLetter(text.charAt(start + 1))) {
+                continue;
+            }
+            int end = start + 2;
+            int limit = Math.min(length, start + 2 + MAX_BODY_LENGTH);
+            while (end < limit && isAlphanumeric(text.charAt(end))) {
+                end++;
+            }
+            if (end - start - 2 >= 8) {
+                return normalize(text.substring(start, end));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Vrai si le numéro normalisé a un préfixe d'État membre, la longueur et les caractères attendus par ce pays,
+     * et une clé de contrôle exacte quand le pays en définit une
+     */
+    static boolean isValid(@Nonnull String vatNumber) {
+        Format format = format(vatNumber);
+        if (format == null) {
+            return false;
+        }
+        int bodyLength = vatNumber.length() - 2;
+        if (bodyLength < 1 || bodyLength > MAX_BODY_LENGTH || format.shapes[bodyLength] == null) {
+            return false;
+        }
+        for (String shape : format.shapes[bodyLength]) {
+            if (matches(vatNumber, shape)) {
+                return format.checksum == null || format.checksum.test(vatNumber);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Majuscules, sans séparateurs : seuls les chiffres et les lettres ASCII sont conservés
+     */
+    @Nonnull
+    static String normalize(@Nullable String vatNumber) {
+        if (vatNumber == null) {
+            return "";
+        }
+        int length = vatNumber.length();
+        char[] buffer = null;
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            char c = vatNumber.charAt(i);
+            char normalized = (c >= 'a' && c <= 'z') ? (char) (c - ('a' - 'A')) : c;
+            boolean kept = (normalized >= 'A' && normalized <= 'Z') || (normalized >= '0' && normalized <= '9');
+            if (buffer == null) {
+                if (kept && normalized == c) {
+                    continue;
+                }
+                // Premier caractère à modifier : copie de ce qui précède, déjà normalisé
+                buffer = new char[length];
+                vatNumber.getChars(0, i, buffer, 0);
+                size = i;
+            }
+            if (kept) {
+                buffer[size++] = normalized;
+            }
+        }
+        return buffer == null ? vatNumber : new String(buffer, 0, size);
+    }
+
+    private static boolean checkAustria(@Nonnull String vatNumber) {
+        // ATU + 7 chiffres + clé ; chiffres de rang pair doublés (somme de leurs chiffres)
+        int sum = 0;
+        for (int i = 0; i < 7; i++) {
+            int d = digit(vatNumber, 3 + i);
+            if (i % 2 == 1) {
+                d *= 2;
+                d = d / 10 + d % 10;
+            }
+            sum += d;
+        }
+        return (10 - (sum + 4) % 10) % 10 == digit(vatNumber, 10);
+    }
+
+    private static boolean checkBelgium(@Nonnull String vatNumber) {
+        int first = digit(vatNumber, 2);
+        return (first == 0 || first == 1) && 97 - number(vatNumber, 2, 10) % 97 == number(vatNumber, 10, 12);
+    }
+
+    private static boolean checkCroatia(@Nonnull String vatNumber) {
+        return checkMod11Mod10(vatNumber);
+    }
+
+    private static boolean checkDenmark(@Nonnull String vatNumber) {
+        return weightedSum(vatNumber, 2, 2, 7, 6, 5, 4, 3, 2, 1) % 11 == 0;
+    }
+
+    private static boolean checkEstonia(@Nonnull String vatNumber) {
+        return weightedSum(vatNumber, 2, 3, 7, 1, 3, 7, 1, 3, 7, 1) % 10 == 0;
+    }
+
+    private static boolean checkFinland(@Nonnull String vatNumber) {
+        return weightedSum(vatNumber, 2, 7, 9, 10, 5, 8, 4, 2, 1) % 11 == 0;
+    }
+
+    private static boolean checkFrance(@Nonnull String vatNumber) {
+        // Clé alphanumérique (ancien format) : pas de contrôle local
+        if (!isDigit(vatNumber.charAt(2)) || !isDigit(vatNumber.charAt(3))) {
+            return true;
+        }
+        return (12 + 3 * (number(vatNumber, 4, 13) % 97)) % 97 == number(vatNumber, 2, 4);
+    }
+
+    private static boolean checkGermany(@Nonnull String vatNumber) {
+        return checkMod11Mod10(vatNumber);
+    }
+
+    private static boolean checkGreece(@Nonnull String vatNumber) {
+        return weightedSum(vatNumber, 2, 256, 128, 64, 32, 16, 8, 4, 2) % 11 % 10 == digit(vatNumber, 10);
+    }
+
+    private static boolean checkHungary(@Nonnull String vatNumber) {
+        return weightedSum(vatNumber, 2, 9, 7, 3, 1, 9, 7, 3, 1) % 10 == 0;
+    }
+
+    private static boolean checkItaly(@Nonnull String vatNumber) {
+        return checkLuhn(vatNumber, 2, 13);
+    }
+
+    /**
+     * Algorithme de Luhn sur les chiffres [from, to[, le dernier étant la clé
+     */
+    private static boolean checkLuhn(@Nonnull String vatNumber,
+                                     int from,
+                                     int to) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = to - 1; i >= from; i--) {
+            int d = digit(vatNumber, i);
+            if (doubled) {
+                d *= 2;
+                if (d > 9) {
+                    d -= 9;
+                }
+            }
+            sum += d;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static boolean checkLuxembourg(@Nonnull String vatNumber) {
+        return number(vatNumber, 2, 8) % 89 == number(vatNumber, 8, 10);
+    }
+
+    /**
+     * ISO 7064 MOD 11,10 sur tout le numéro hors préfixe, le dernier chiffre étant la clé (Allemagne, Croatie)
+     */
+    private static boolean checkMod11Mod10(@Nonnull String vatNumber) {
+        int last = vatNumber.length() - 1;
+        int product = 10;
+        for (int i = 2; i < last; i++) {
+            int sum = (digit(vatNumber, i) + product) % 10;
+            if (sum == 0) {
+                sum = 10;
+            }
+            product = (2 * sum) % 11;
+        }
+        return (11 - product) % 10 == digit(vatNumber, last);
+    }
+
+    private static boolean checkNetherlands(@Nonnull String vatNumber) {
+        // Numéro d'entreprise (modulo 11), ou numéro d'entrepreneur individuel depuis 2020 (modulo 97 sur « NL… »)
+        int sum = weightedSum(vatNumber, 2, 9, 8, 7, 6, 5, 4, 3, 2);
+        if (sum % 11 == digit(vatNumber, 10)) {
+            return true;
+        }
+        int remainder = 0;
+        for (int i = 0; i < vatNumber.length(); i++) {
+            char c = vatNumber.charAt(i);
+            if (isDigit(c)) {
+                remainder = (remainder * 10 + (c - '0')) % 97;
+            } else {
+                // Lettre : A=10 … Z=35 (deux chiffres)
+                remainder = (remainder * 100 + (c - 'A' + 10)) % 97;
+            }
+        }
+        return remainder == 1;
+    }
+
+    private static boolean checkPoland(@Nonnull String vatNumber) {
+        return weightedSum(vatNumber, 2, 6, 5, 7, 2, 3, 4, 5, 6, 7) % 11 == digit(vatNumber, 11);
+    }
+
+    private static boolean checkPortugal(@Nonnull String vatNumber) {
+        int check = 11 - weightedSum(vatNumber, 2, 9, 8, 7, 6, 5, 4, 3, 2) % 11;
+        return (check > 9 ? 0 : check) == digit(vatNumber, 10);
+    }
+
+    private static boolean checkRomania(@Nonnull String vatNumber) {
+        // Poids 7,5,3,2,1,7,5,3,2 alignés à droite sur les chiffres précédant la clé
+        int last = vatNumber.length() - 1;
+        int[] weights = {7, 5, 3, 2, 1, 7, 5, 3, 2};
+        int sum = 0;
+        for (int i = last - 1, w = weights.length - 1; i >= 2; i--, w--) {
+            sum += digit(vatNumber, i) * weights[w];
+        }
+        return sum * 10 % 11 % 10 == digit(vatNumber, last);
+    }
+
+    private static boolean checkSlovakia(@Nonnull String vatNumber) {
+        return number(vatNumber, 2, 12) % 11 == 0;
+    }
+
+    private static boolean checkSlovenia(@Nonnull String vatNumber) {
+        if (digit(vatNumber, 2) == 0) {
+            return false;
+        }
+        int check = 11 - weightedSum(vatNumber, 2, 8, 7, 6, 5, 4, 3, 2) % 11;
+        if (check == 11) {
+            return false;
+        }
+        return check % 10 == digit(vatNumber, 9);
+    }
+
+    private static boolean checkSweden(@Nonnull String vatNumber) {
+        // Numéro d'organisation (10 chiffres, clé de Luhn) suivi d'un suffixe d'établissement
+        return checkLuhn(vatNumber, 2, 12);
+    }
+
+    private static int digit(@Nonnull String vatNumber,
+                             int index) {
+        return vatNumber.charAt(index) - '0';
+    }
+
+    @Nullable
+    private static Format format(@Nonnull String vatNumber) {
+        if (vatNumber.length() < 2) {
+            return null;
+        }
+        char first = vatNumber.charAt(0);
+        char second = vatNumber.charAt(1);
+        if (first < 'A' || first > 'Z' || second < 'A' || second > 'Z') {
+            return null;
+        }
+        return FORMATS[index(first, second)];
+    }
+
+    private static int index(char first,
+                             char second) {
+        return (first - 'A') * 26 + (second - 'A');
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return isDigit(c) || isLetter(c);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    /**
+     * Compare le numéro (hors préfixe) à un gabarit de même longueur
+     */
+    private static boolean matches(@Nonnull String vatNumber,
+                                   @Nonnull String shape) {
+        for (int i = 0; i < shape.length(); i++) {
+            char c = vatNumber.charAt(i + 2);
+            boolean ok = switch (shape.charAt(i)) {
+                case '9' -> isDigit(c);
+                case 'A' -> c >= 'A' && c <= 'Z';
+                case 'X' -> isDigit(c) || (c >= 'A' && c <= 'Z');
+                default -> c == shape.charAt(i);
+            };
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Valeur des chiffres [from, to[ (au plus 18)
+     */
+    private static long number(@Nonnull String vatNumber,
+                               int from,
+                               int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + digit(vatNumber, i);
+        }
+        return value;
+    }
+
+    private static void register(@Nonnull String countryCode,
+                                 @Nullable Checksum checksum,
+                                 @Nonnull String... shapes) {
+        String[][] byLength = new String[MAX_BODY_LENGTH + 1][];
+        for (String shape : shapes) {
+            String[] sameLength = byLength[shape.length()];
+            if (sameLength == null) {
+                byLength[shape.length()] = new String[] {shape};
+            } else {
+                String[] extended = Arrays.copyOf(sameLength, sameLength.length + 1);
+                extended[sameLength.length] = shape;
+                byLength[shape.length()] = extended;
+            }
+        }
+        FORMATS[index(countryCode.charAt(0), countryCode.charAt(1))] = new Format(countryCode, byLength, checksum);
+    }
+
+    /**
+     * Somme pondérée des chiffres à partir de {@code from}, un poids par chiffre
+     */
+    private static int weightedSum(@Nonnull String vatNumber,
+                                   int from,
+                                   int... weights) {
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += digit(vatNumber, from + i) * weights[i];
+        }
+        return sum;
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Clé de contrôle d'un numéro normalisé dont le format a déjà été vérifié
+     */
+    @FunctionalInterface
+    private interface Checksum {
+
+        boolean test(@Nonnull String vatNumber);
+    }
+
+    private static final class Format {
+
+        @Nullable
+        private final Checksum checksum;
+
+        @Nonnull
+        private final String countryCode;
+
+        // Gabarits admis, indexés par longueur du numéro hors préfixe
+        @Nonnull
+        private final String[][] shapes;
+
+        private Format(@Nonnull String countryCode,
+                       @Nonnull String[][] shapes,
+                       @Nullable Checksum checksum) {
+            this.countryCode = countryCode;
+            this.shapes = shapes;
+            this.checksum = checksum;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.euvatease.service;
+
+import com.euvatease.entity.EuVatRate;
+import com.euvatease.repository.EuVatRateRepository;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Table en mémoire des taux de TVA UE, indexée par code pays et versionnée par période d'effet.
+ * Le contenu est chargé depuis eu_vat_rates puis remplacé atomiquement à chaque rafraîchissement.
+ */
+@Service
+public class VatRateTable {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final Logger log = LoggerFactory.getLogger(VatRateTable.class);
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final EuVatRateRepository euVatRateRepository;
+
+    @Nonnull
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    @Nullable
+    private volatile Snapshot snapshot;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    public VatRateTable(@Nonnull EuVatRateRepository euVatRateRepository) {
+        this.euVatRateRepository = Objects.requireNonNull(euVatRateRepository, "euVatRateRepository must not be null");
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Nom du pays tel qu'enregistré dans la table des taux
+     */
+    @Nullable
+    public String getCountryName(@Nullable String countryCode) {
+        if (countryCode == null) {
+            return null;
+        }
+        CountryRates rates = current().byCountry.get(countryCode);
+        return rates != null ? rates.countryName : null;
+    }
+
+    /**
+     * Taux des pays membres de l'UE en vigueur à une date, triés par nom de pays
+     */
+    @Nonnull
+    public List<Entry> getEuRates(@Nonnull LocalDate date) {
+        long day = date.toEpochDay();
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : current().entries) {
+            if (entry.euMember && entry.covers(day)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Taux standard en vigueur pour un pays à une date, sans allocation ni accès base
+     */
+    @Nullable
+    public BigDecimal getStandardRate(@Nullable String countryCode,
+                                      @Nonnull LocalDate date) {
+        if (countryCode == null) {
+            return null;
+        }
+        CountryRates rates = current().byCountry.get(countryCode);
+        if (rates == null) {
+            return null;
+        }
+        Entry entry = rates.find(date.toEpochDay());
+        return entry != null ? entry.standardRate : null;
+    }
+
+    /**
+     * Recharge la table depuis la base et remplace l'instantané courant
+     */
+    @Scheduled(fixedDelayString = "${vat-rates.refresh-interval:3600000}",
+        initialDelayString = "${vat-rates.refresh-interval:3600000}")
+    public void refresh() {
+        Snapshot loaded = Snapshot.of(euVatRateRepository.findAll());
+        snapshot = loaded;
+        log.info("Table des taux TVA chargée: {} pays, {} périodes", loaded.byCountry.size(), loaded.entries.size());
+    }
+
+    @Nonnull
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // Verrou explicite : un thread virtuel bloqué sur la requête de chargement ne monopolise pas son porteur
+            loadLock.lock();
+            try {
+                current = snapshot;
+                if (current == null) {
+                    refresh();
+                    current = snapshot;
+                }
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Période d'application d'un taux pour un pays (copie immuable d'une ligne eu_vat_rates)
+     */
+    public static final class Entry {
+
+        private final String countryCode;
+        private final String countryName;
+        private final boolean euMember;
+        private final long fromDay;
+        private final BigDecimal reducedRate;
+        private final BigDecimal standardRate;
+        private final long toDay;
+
+        private Entry(@Nonnull EuVatRate rate) {
+            this.countryCode = rate.getCountryCode();
+            this.countryName = rate.getCountryName();
+            this.standardRate = rate.getStandardRate();
+            this.reducedRate = rate.getReducedRate();
+            this.euMember = Boolean.TRUE.equals(rate.getIsEuMember());
+            this.fromDay = rate.getEffectiveFrom().toEpochDay();
+            this.toDay = rate.getEffectiveTo() != null ? rate.getEffectiveTo().toEpochDay() : Long.MAX_VALUE;
+        }
+
+        @Nonnull
+        public String getCountryCode() {
+            return countryCode;
+        }
+
+        @Nonnull
+        public String getCountryName() {
+            return countryName;
+        }
+
+        @Nullable
+        public BigDecimal getReducedRate() {
+            return reducedRate;
+        }
+
+        @Nonnull
+        public BigDecimal getStandardRate() {
+            return standardRate;
+        }
+
+        public boolean isEuMember() {
+            return euMember;
+        }
+
+        private boolean covers(long day) {
+            return fromDay <= day && day <= toDay;
+        }
+    }
+
+    private static final class CountryRates {
+
+        private final String countryName;
+        private final Entry[] periods;
+
+        private CountryRates(@Nonnull List<Entry> periods) {
+            this.periods = periods.toArray(new Entry[0]);
+            Arrays.sort(this.periods, Comparator.comparingLong(e -> e.fromDay));
+            this.countryName = this.periods[this.periods.length - 1].countryName;
+        }
+
+        /**
+         * Période la plus récente couvrant le jour demandé (les périodes sont triées par date d'effet)
+         */
+        @Nullable
+        private Entry find(long day) {
+            for (int i = periods.length - 1; i >= 0; i--) {
+                Entry entry = periods[i];
+                if (entry.covers(day)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, CountryRates> byCountry;
+        private final List<Entry> entries;
+
+        private Snapshot(@Nonnull Map<String, CountryRates> byCountry,
+                         @Nonnull List<Entry> entries) {
+            this.byCountry = byCountry;
+            this.entries = entries;
+        }
+
+        @Nonnull
+        private static Snapshot of(@Nonnull List<EuVatRate> rates) {
+            List<Entry> entries = new ArrayList<>(rates.size());
+            Map<String, List<Entry>> grouped = new HashMap<>();
+            for (EuVatRate rate : rates) {
+                Entry entry = new Entry(rate);
+                entries.add(entry);
+                grouped.computeIfAbsent(entry.countryCode, k -> new ArrayList<>()).add(entry);
+            }
+            entries.sort(Comparator.comparing(Entry::getCountryName));
+
+            Map<String, CountryRates> byCountry = new HashMap<>();
+            grouped.forEach((code, periods) -> byCountry.put(code, new CountryRates(periods)));
+
+            return new Snapshot(Collections.unmodifiableMap(byCountry), Collections.unmodifiableList(entries));
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.euvatease.service;
+
+import com.euvatease.config.AsyncConfig;
+import com.euvatease.entity.Shop;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Moteur de ré-analyse TVA de l'historique d'une boutique.
+ * La période est découpée en tranches traitées en parallèle sur l'exécuteur partagé des ré-analyses, chacune dans une
+ * transaction courte.
+ * Une exécution interrompue reprend aux tranches non terminées lorsqu'elle est relancée sur la même période.
+ * L'avancement n'est conservé qu'en mémoire, par instance : après un redémarrage, ou sur une autre instance, la
+ * ré-analyse repart de la première tranche (sans effet sur le résultat, chaque tranche étant rejouable).
+ */
+@Service
+public class VatReanalysisService {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final Logger log = LoggerFactory.getLogger(VatReanalysisService.class);
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final ExecutorService executor;
+
+    @Nonnull
+    private final ConcurrentMap<Long, ReanalysisRun> runs = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final VatCalculationService vatCalculationService;
+
+    @Value("${vat-analysis.chunk-days:30}")
+    private int chunkDays;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    public VatReanalysisService(@Nonnull VatCalculationService vatCalculationService,
+                                @Nonnull @Qualifier(AsyncConfig.REANALYSIS_EXECUTOR) ExecutorService executor) {
+        this.vatCalculationService = Objects.requireNonNull(vatCalculationService, "vatCalculationService must not be null");
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Avancement de la dernière ré-analyse de la boutique
+     */
+    @Nullable
+    public Map<String, Object> getProgress(@Nonnull Shop shop) {
+        ReanalysisRun run = runs.get(shop.getId());
+        return run != null ? run.toProgress() : null;
+    }
+
+    /**
+     * Ré-analyse toutes les commandes d'une période, tranche par tranche.
+     * Si la dernière exécution sur la même période a échoué, seules les tranches restantes sont traitées.
+     */
+    @Nonnull
+    public Map<String, Object> reanalyze(@Nonnull Shop shop,
+                                         @Nonnull LocalDateTime start,
+                                         @Nonnull LocalDateTime end) {
+        ReanalysisRun run = runs.compute(shop.getId(), (shopId, existing) -> {
+            if (existing != null && existing.running) {
+                throw new RuntimeException("Une ré-analyse est déjà en cours pour cette boutique");
+            }
+            if (existing != null && existing.isResumableFor(start, end)) {
+                log.info("Reprise de la ré-analyse shop={}: {}/{} tranches déjà traitées",
+                    shop.getShopifyDomain(), existing.completedChunks.get(), existing.chunkStarts.size());
+                existing.running = true;
+                return existing;
+            }
+            return new ReanalysisRun(start, end, splitPeriod(start, end));
+        });
+
+        int failures;
+        try {
+            failures = processPendingChunks(shop, run);
+        } finally {
+            run.running = false;
+        }
+
+        if (failures > 0) {
+            throw new RuntimeException(String.format(
+                "Ré-analyse incomplète: %d tranche(s) en échec, relancez-la pour reprendre", failures));
+        }
+
+        VatCalculationService.AnalysisSummary summary = new VatCalculationService.AnalysisSummary();
+        for (int i = 0; i < run.results.length(); i++) {
+            summary.merge(run.results.get(i));
+        }
+
+        log.info("Ré-analyse shop={} terminée: {} commandes en {} tranches",
+            shop.getShopifyDomain(), summary.getTotalOrders(), run.chunkStarts.size());
+
+        return vatCalculationService.summarizeAnalysis(shop, summary, start, end);
+    }
+
+    /**
+     * Soumet les tranches non terminées à l'exécuteur des ré-analyses et attend leur fin
+     * (file pleine : le thread appelant traite lui-même la tranche)
+     *
+     * @return le nombre de tranches en échec
+     */
+    private int processPendingChunks(@Nonnull Shop shop,
+                                     @Nonnull ReanalysisRun run) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < run.chunkStarts.size(); i++) {
+            if (run.results.get(i) == null) {
+                int chunk = i;
+                futures.add(executor.submit(() -> processChunk(shop, run, chunk)));
+            }
+        }
+
+        int failures = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failures++;
+                log.error("Erreur ré-analyse shop={}: {}", shop.getShopifyDomain(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new RuntimeException("Ré-analyse interrompue", e);
+            }
+        }
+        return failures;
+    }
+
+    private void processChunk(@Nonnull Shop shop,
+                              @Nonnull ReanalysisRun run,
+                              int chunk) {
+        LocalDateTime chunkStart = run.chunkStarts.get(chunk);
+        LocalDateTime chunkEnd = chunk + 1 < run.chunkStarts.size()
+            ? run.chunkStarts.get(chunk + 1)
+            : run.end.plus(1, ChronoUnit.MICROS);
+
+        VatCalculationService.AnalysisSummary result = vatCalculationService.analyzeChunk(shop, chunkStart, chunkEnd);
+
+        run.results.set(chunk, result);
+        run.processedOrders.addAndGet(result.getTotalOrders());
+        int completed = run.completedChunks.incrementAndGet();
+
+        log.info("Ré-analyse shop={}: tranche {}/{} terminée ({} commandes)",
+            shop.getShopifyDomain(), completed, run.chunkStarts.size(), result.getTotalOrders());
+    }
+
+    /**
+     * Début de chaque tranche ; une tranche couvre [début, début suivant[
+     */
+    @Nonnull
+    private List<LocalDateTime> splitPeriod(@Nonnull LocalDateTime start,
+                                            @Nonnull LocalDateTime end) {
+        List<LocalDateTime> chunkStarts = new ArrayList<>();
+        LocalDateTime cursor = start;
+        do {
+            chunkStarts.add(cursor);
+            cursor = cursor.plusDays(Math.max(1, chunkDays));
+        } while (!cursor.isAfter(end));
+        return chunkStarts;
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * État d'une ré-analyse : résultats par tranche et compteurs d'avancement
+     */
+    private static final class ReanalysisRun {
+
+        private final List<LocalDateTime> chunkStarts;
+        private final AtomicInteger completedChunks = new AtomicInteger();
+        private final LocalDateTime end;
+        private final AtomicInteger processedOrders = new AtomicInteger();
+        private final AtomicReferenceArray<VatCalculationService.AnalysisSummary> results;
+        private volatile boolean running = true;
+        private final LocalDateTime start;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+
+        private ReanalysisRun(@Nonnull LocalDateTime start,
+                              @Nonnull LocalDateTime end,
+                              @Nonnull List<LocalDateTime> chunkStarts) {
+            this.start = start;
+            this.end = end;
+            this.chunkStarts = chunkStarts;
+            this.results = new AtomicReferenceArray<>(chunkStarts.size());
+        }
+
+        private boolean isResumableFor(@Nonnull LocalDateTime start,
+                                       @Nonnull LocalDateTime end) {
+            return this.start.equals(start) && this.end.equals(end) && completedChunks.get() < chunkStarts.size();
+        }
+
+        @Nonnull
+        private Map<String, Object> toProgress() {
+            int total = chunkStarts.size();
+            int completed = completedChunks.get();
+
+            Map<String, Object> progress = new HashMap<>();
+            progress.put("running", running);
+            progress.put("periodStart", start);
+            progress.put("periodEnd", end);
+            progress.put("startedAt", startedAt);
+            progress.put("totalChunks", total);
+            progress.put("completedChunks", completed);
+            progress.put("processedOrders", processedOrders.get());
+            progress.put("percentage", total > 0 ? (completed * 100.0 / total) : 100.0);
+            return progress;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.euvatease.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Disjoncteur VIES par État membre : après plusieurs indisponibilités consécutives d'un pays, ses numéros ne sont plus
+ * envoyés à VIES pendant une durée qui double à chaque sonde en échec (plafonnée). À l'échéance, un seul appel de sonde
+ * est autorisé (semi-ouvert) ; son succès referme le disjoncteur.
+ * État exposé par pays : vies.circuit.state (0 fermé, 1 semi-ouvert, 2 ouvert) et vies.circuit.rejected.
+ */
+@Service
+public class ViesCircuitBreaker {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final Logger log = LoggerFactory.getLogger(ViesCircuitBreaker.class);
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final ConcurrentMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final MeterRegistry registry;
+
+    @Value("${vies.circuit-breaker.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${vies.circuit-breaker.max-open-duration:1800000}")
+    private long maxOpenDuration;
+
+    @Value("${vies.circuit-breaker.open-duration:60000}")
+    private long openDuration;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    public ViesCircuitBreaker(@Nonnull MeterRegistry registry) {
+        this.registry = Objects.requireNonNull(registry, "registry must not be null");
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Vrai si le pays n'est pas en panne connue (disjoncteur fermé)
+     */
+    public boolean isClosed(@Nonnull String countryCode) {
+        return breaker(countryCode).state() == State.CLOSED;
+    }
+
+    /**
+     * Appel en échec pour indisponibilité de l'État membre ou du service
+     */
+    public void recordFailure(@Nonnull String countryCode) {
+        breaker(countryCode).onFailure();
+    }
+
+    /**
+     * VIES a répondu pour ce pays (numéro valide ou non)
+     */
+    public void recordSuccess(@Nonnull String countryCode) {
+        breaker(countryCode).onSuccess();
+    }
+
+    /**
+     * Appel autorisé mais jamais émis (pool de connexions local saturé, requête abandonnée) : libère la sonde
+     * éventuelle sans juger l'État membre
+     */
+    public void release(@Nonnull String countryCode) {
+        breaker(countryCode).onRelease();
+    }
+
+    /**
+     * Indique si un appel VIES peut être émis pour le pays ; chaque appel autorisé doit être suivi
+     * de {@link #recordSuccess}, {@link #recordFailure} ou {@link #release}
+     */
+    public boolean tryAcquire(@Nonnull String countryCode) {
+        Breaker breaker = breaker(countryCode);
+        if (breaker.tryAcquire()) {
+            return true;
+        }
+        breaker.rejected.increment();
+        return false;
+    }
+
+    @Nonnull
+    private Breaker breaker(@Nonnull String countryCode) {
+        return breakers.computeIfAbsent(countryCode, this::createBreaker);
+    }
+
+    @Nonnull
+    private Breaker createBreaker(@Nonnull String countryCode) {
+        Breaker breaker = new Breaker(countryCode, Counter.builder("vies.circuit.rejected")
+            .description("Validations VIES non émises, disjoncteur ouvert")
+            .tag("country", countryCode)
+            .register(registry));
+        Gauge.builder("vies.circuit.state", breaker, b -> b.state().ordinal())
+            .description("État du disjoncteur VIES (0 fermé, 1 semi-ouvert, 2 ouvert)")
+            .tag("country", countryCode)
+            .register(registry);
+        return breaker;
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    private enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final class Breaker {
+
+        private final String countryCode;
+        private int failures;
+        private final ReentrantLock lock = new ReentrantLock();
+        private long openDurationMillis;
+        private long openUntilMillis;
+        private boolean probing;
+        private final Counter rejected;
+        private State state = State.CLOSED;
+
+        private Breaker(@Nonnull String countryCode,
+                        @Nonnull Counter rejected) {
+            this.countryCode = countryCode;
+            this.rejected = rejected;
+        }
+
+        private void onFailure() {
+            lock.lock();
+            try {
+                if (state == State.HALF_OPEN) {
+                    // Sonde en échec : réouverture pour une durée doublée
+                    probing = false;
+                    open(Math.min(openDurationMillis * 2, maxOpenDuration));
+                } else if (state == State.CLOSED && ++failures >= Math.max(1, failureThreshold)) {
+                    open(openDuration);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void onRelease() {
+            lock.lock();
+            try {
+                if (state == State.HALF_OPEN) {
+                    probing = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void onSuccess() {
+            lock.lock();
+            try {
+                if (state != State.CLOSED) {
+                    log.info("Disjoncteur VIES refermé pour {}", countryCode);
+                }
+                state = State.CLOSED;
+                failures = 0;
+                probing = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void open(long durationMillis) {
+            state = State.OPEN;
+            openDurationMillis = Math.max(1, durationMillis);
+            openUntilMillis = System.currentTimeMillis() + openDurationMillis;
+            log.warn("Disjoncteur VIES ouvert pour {} pendant {}s", countryCode, openDurationMillis / 1000);
+        }
+
+        @Nonnull
+        private State state() {
+            lock.lock();
+            try {
+                return state;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean tryAcquire() {
+            lock.lock();
+            try {
+                if (state == State.OPEN && System.currentTimeMillis() >= openUntilMillis) {
+                    state = State.HALF_OPEN;
+                }
+                return switch (state) {
+                    case CLOSED -> true;
+                    case HALF_OPEN -> {
+                        // Une seule sonde à la fois
+                        if (probing) {
+                            yield false;
+                        }
+                        probing = true;
+                        yield true;
+                    }
+                    case OPEN -> false;
+                };
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
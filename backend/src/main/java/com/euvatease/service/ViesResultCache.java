@@ -0,0 +1,253 @@
+package com.euvatease.service;
+
+import com.euvatease.dto.VatValidationResult;
+import com.euvatease.entity.VatValidation.ValidationStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Cache des résultats de validation VIES, à deux niveaux : LRU en mémoire borné, puis table vat_validations.
+ * Un résultat reste valable selon une durée propre à son statut (aucune pour les statuts transitoires).
+ * Les validations simultanées d'un même numéro sont regroupées en un seul appel.
+ */
+@Service
+public class ViesResultCache {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final String METRIC_PREFIX = "vies.cache.";
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final Counter collapsed;
+
+    @Nonnull
+    private final Counter databaseHits;
+
+    @Nonnull
+    private final ConcurrentMap<String, CompletableFuture<VatValidationResult>> inFlight = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Nonnull
+    private final Counter memoryHits;
+
+    @Nonnull
+    private final Counter misses;
+
+    @Value("${vies.cache.format-error-ttl-minutes:10080}")
+    private long formatErrorTtlMinutes;
+
+    @Value("${vies.cache.invalid-ttl-minutes:360}")
+    private long invalidTtlMinutes;
+
+    @Value("${vies.cache.max-size:10000}")
+    private int maxSize;
+
+    private Map<String, VatValidationResult> recent;
+
+    @Value("${vies.cache.valid-ttl-minutes:1440}")
+    private long validTtlMinutes;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    public ViesResultCache(@Nonnull MeterRegistry registry) {
+        Objects.requireNonNull(registry, "registry must not be null");
+        this.memoryHits = Counter.builder(METRIC_PREFIX + "gets")
+            .description("Validations VIES servies par le cache")
+            .tag("result", "hit")
+            .tag("level", "memory")
+            .register(registry);
+        this.databaseHits = Counter.builder(METRIC_PREFIX + "gets")
+            .description("Validations VIES servies par le cache")
+            .tag("result", "hit")
+            .tag("level", "database")
+            .register(registry);
+        this.misses = Counter.builder(METRIC_PREFIX + "gets")
+            .description("Validations VIES servies par le cache")
+            .tag("result", "miss")
+            .tag("level", "none")
+            .register(registry);
+        this.collapsed = Counter.builder(METRIC_PREFIX + "collapsed")
+            .description("Validations VIES regroupées avec un appel déjà en cours")
+            .register(registry);
+        Gauge.builder(METRIC_PREFIX + "size", this, ViesResultCache::size)
+            .description("Résultats VIES en mémoire")
+            .register(registry);
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Retourne le résultat encore valable d'un numéro normalisé : mémoire, puis {@code stored} (dernier résultat en base),
+     * sinon {@code validator}. Un seul appel par numéro est en cours à la fois ; les autres en attendent le résultat.
+     */
+    @Nonnull
+    public VatValidationResult get(@Nonnull String vatNumber,
+                                   @Nonnull Supplier<VatValidationResult> stored,
+                                   @Nonnull Supplier<VatValidationResult> validator) {
+        VatValidationResult cached = getIfPresent(vatNumber);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<VatValidationResult> call = new CompletableFuture<>();
+        CompletableFuture<VatValidationResult> running = inFlight.putIfAbsent(vatNumber, call);
+        if (running != null) {
+            collapsed.increment();
+            return await(running);
+        }
+
+        try {
+            VatValidationResult result = stored.get();
+            if (result != null && isFresh(result)) {
+                databaseHits.increment();
+            } else {
+                misses.increment();
+                result = validator.get();
+            }
+            put(vatNumber, result);
+            call.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(vatNumber, call);
+        }
+    }
+
+    /**
+     * Résultat encore valable en mémoire, sans lecture en base ni validation
+     */
+    @Nullable
+    public VatValidationResult getIfPresent(@Nonnull String vatNumber) {
+        VatValidationResult cached = getFresh(vatNumber);
+        if (cached != null) {
+            memoryHits.increment();
+        }
+        return cached;
+    }
+
+    /**
+     * Oublie le résultat en mémoire d'un numéro (ex. après une nouvelle validation hors de {@link #get})
+     */
+    public void invalidate(@Nonnull String vatNumber) {
+        lock.lock();
+        try {
+            recent.remove(vatNumber);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PostConstruct
+    void initCache() {
+        int capacity = Math.max(1, maxSize);
+        recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VatValidationResult> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Nonnull
+    private static VatValidationResult await(@Nonnull CompletableFuture<VatValidationResult> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Nullable
+    private VatValidationResult getFresh(@Nonnull String vatNumber) {
+        lock.lock();
+        try {
+            VatValidationResult result = recent.get(vatNumber);
+            if (result != null && !isFresh(result)) {
+                recent.remove(vatNumber);
+                return null;
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isFresh(@Nonnull VatValidationResult result) {
+        Duration ttl = result.getStatus() != null ? timeToLive(result.getStatus()) : Duration.ZERO;
+        if (ttl.isZero() || result.getValidationDate() == null) {
+            return false;
+        }
+        return result.getValidationDate().plus(ttl).isAfter(LocalDateTime.now());
+    }
+
+    private void put(@Nonnull String vatNumber,
+                     @Nonnull VatValidationResult result) {
+        lock.lock();
+        try {
+            if (isFresh(result)) {
+                recent.put(vatNumber, result);
+            } else {
+                recent.remove(vatNumber);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Durée de validité d'un résultat selon son statut ; UNAVAILABLE, PENDING et ERROR ne sont jamais servis du cache
+     */
+    @Nonnull
+    private Duration timeToLive(@Nonnull ValidationStatus status) {
+        return switch (status) {
+            case VALID -> Duration.ofMinutes(validTtlMinutes);
+            case INVALID -> Duration.ofMinutes(invalidTtlMinutes);
+            case FORMAT_ERROR -> Duration.ofMinutes(formatErrorTtlMinutes);
+            default -> Duration.ZERO;
+        };
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return recent != null ? recent.size() : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
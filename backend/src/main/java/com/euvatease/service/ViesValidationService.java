@@ -1,5 +1,7 @@
 package com.euvatease.service;
 
+import com.euvatease.config.AsyncConfig;
+import com.euvatease.config.HttpClientConfig;
 import com.euvatease.dto.VatValidationResult;
 import com.euvatease.entity.Shop;
 import com.euvatease.entity.VatValidation;
@@ -7,34 +9,56 @@ import com.euvatease.entity.VatValidation.ValidationStatus;
 import com.euvatease.repository.VatValidationRepository;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
-import jakarta.xml.soap.MessageFactory;
-import jakarta.xml.soap.SOAPBody;
-import jakarta.xml.soap.SOAPConnection;
-import jakarta.xml.soap.SOAPConnectionFactory;
-import jakarta.xml.soap.SOAPElement;
-import jakarta.xml.soap.SOAPEnvelope;
-import jakarta.xml.soap.SOAPException;
-import jakarta.xml.soap.SOAPMessage;
-import jakarta.xml.soap.SOAPPart;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.RequestFailedException;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * Service de validation des numéros de TVA intracommunautaire via le service VIES officiel.
@@ -48,57 +72,80 @@ public class ViesValidationService {
 
     private static final Logger log = LoggerFactory.getLogger(ViesValidationService.class);
 
-    // Codes pays UE valides pour la TVA
-    private static final Set<String> EU_COUNTRY_CODES = Set.of(
-        "AT", "BE", "BG", "HR", "CY", "CZ", "DK", "EE", "FI", "FR",
-        "DE", "GR", "HU", "IE", "IT", "LV", "LT", "LU", "MT", "NL",
-        "PL", "PT", "RO", "SK", "SI", "ES", "SE"
-    );
+    // Enveloppe checkVat précompilée : seuls le code pays et le numéro (déjà normalisés en [A-Z0-9]) sont insérés
+    private static final String CHECK_VAT_ENVELOPE =
+        "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" " +
+        "xmlns:urn=\"urn:ec.europa.eu:taxud:vies:services:checkVat:types\">" +
+        "<soapenv:Header/><soapenv:Body><urn:checkVat>" +
+        "<urn:countryCode>%s</urn:countryCode><urn:vatNumber>%s</urn:vatNumber>" +
+        "</urn:checkVat></soapenv:Body></soapenv:Envelope>";
+
+    private static final ContentType SOAP_CONTENT_TYPE = ContentType.create("text/xml", StandardCharsets.UTF_8);
 
-    // Patterns de validation par pays (formats simplifiés)
-    private static final Map<String, Pattern> VAT_PATTERNS = Map.ofEntries(
-        Map.entry("AT", Pattern.compile("^ATU[0-9]{8}$")),
-        Map.entry("BE", Pattern.compile("^BE[0-9]{10}$")),
-        Map.entry("BG", Pattern.compile("^BG[0-9]{9,10}$")),
-        Map.entry("HR", Pattern.compile("^HR[0-9]{11}$")),
-        Map.entry("CY", Pattern.compile("^CY[0-9]{8}[A-Z]$")),
-        Map.entry("CZ", Pattern.compile("^CZ[0-9]{8,10}$")),
-        Map.entry("DK", Pattern.compile("^DK[0-9]{8}$")),
-        Map.entry("EE", Pattern.compile("^EE[0-9]{9}$")),
-        Map.entry("FI", Pattern.compile("^FI[0-9]{8}$")),
-        Map.entry("FR", Pattern.compile("^FR[A-Z0-9]{2}[0-9]{9}$")),
-        Map.entry("DE", Pattern.compile("^DE[0-9]{9}$")),
-        Map.entry("GR", Pattern.compile("^(GR|EL)[0-9]{9}$")),
-        Map.entry("HU", Pattern.compile("^HU[0-9]{8}$")),
-        Map.entry("IE", Pattern.compile("^IE[0-9]{7}[A-Z]{1,2}$|^IE[0-9][A-Z][0-9]{5}[A-Z]$")),
-        Map.entry("IT", Pattern.compile("^IT[0-9]{11}$")),
-        Map.entry("LV", Pattern.compile("^LV[0-9]{11}$")),
-        Map.entry("LT", Pattern.compile("^LT[0-9]{9,12}$")),
-        Map.entry("LU", Pattern.compile("^LU[0-9]{8}$")),
-        Map.entry("MT", Pattern.compile("^MT[0-9]{8}$")),
-        Map.entry("NL", Pattern.compile("^NL[0-9]{9}B[0-9]{2}$")),
-        Map.entry("PL", Pattern.compile("^PL[0-9]{10}$")),
-        Map.entry("PT", Pattern.compile("^PT[0-9]{9}$")),
-        Map.entry("RO", Pattern.compile("^RO[0-9]{2,10}$")),
-        Map.entry("SK", Pattern.compile("^SK[0-9]{10}$")),
-        Map.entry("SI", Pattern.compile("^SI[0-9]{8}$")),
-        Map.entry("ES", Pattern.compile("^ES[A-Z0-9][0-9]{7}[A-Z0-9]$")),
-        Map.entry("SE", Pattern.compile("^SE[0-9]{12}$"))
+    // Fautes VIES transitoires (à retenter)
+    private static final Set<String> UNAVAILABLE_FAULTS = Set.of(
+        "MS_UNAVAILABLE", "SERVICE_UNAVAILABLE", "TIMEOUT", "MS_MAX_CONCURRENT_REQ", "GLOBAL_MAX_CONCURRENT_REQ"
     );
 
+    private static final String VIES_ENDPOINT = "https://ec.europa.eu/taxation_customs/vies/services/checkVatService";
+
+    // Fabrique StAX partagée (thread-safe une fois configurée), sans résolution d'entités externes
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
     //~ ------------------------------------------------------------------------------------------------
     //~ Instance fields
     //~ ------------------------------------------------------------------------------------------------
 
+    @Nonnull
+    private final ExecutorService batchExecutor;
+
+    // Appels VIES simultanés de tous les lots en cours (vies.batch.parallelism)
+    @Nonnull
+    private final Semaphore batchPermits;
+
+    // Appels VIES simultanés par État membre, partagés entre tous les lots en cours
+    @Nonnull
+    private final ConcurrentMap<String, Semaphore> countryPermits = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final CloseableHttpClient httpClient;
+
+    @Nonnull
+    private final ExecutorService retryExecutor;
+
     @Nonnull
     private final VatValidationRepository vatValidationRepository;
 
+    @Nonnull
+    private final ViesCircuitBreaker viesCircuitBreaker;
+
+    @Nonnull
+    private final ExecutorService viesExecutor;
+
+    @Nonnull
+    private final ViesResultCache viesResultCache;
+
     @Value("${vies.retry-attempts:3}")
     private int maxRetryAttempts;
 
+    @Value("${vies.batch.per-country-concurrency:2}")
+    private int perCountryConcurrency;
+
+    @Value("${vies.retry.base-delay-seconds:900}")
+    private long retryBaseDelaySeconds;
+
+    @Value("${vies.retry.batch-size:20}")
+    private int retryBatchSize;
+
     @Value("${vies.retry-delay:1000}")
     private long retryDelay;
 
+    @Value("${vies.retry.lease-seconds:300}")
+    private long retryLeaseSeconds;
+
+    @Value("${vies.retry.max-delay-seconds:21600}")
+    private long retryMaxDelaySeconds;
+
     @Value("${vies.timeout:30000}")
     private int viesTimeout;
 
@@ -110,8 +157,22 @@ public class ViesValidationService {
     //~ Constructors
     //~ ------------------------------------------------------------------------------------------------
 
-    public ViesValidationService(@Nonnull VatValidationRepository vatValidationRepository) {
+    public ViesValidationService(@Nonnull VatValidationRepository vatValidationRepository,
+                                 @Nonnull ViesResultCache viesResultCache,
+                                 @Nonnull @Qualifier(HttpClientConfig.VIES_HTTP_CLIENT) CloseableHttpClient httpClient,
+                                 @Nonnull ViesCircuitBreaker viesCircuitBreaker,
+                                 @Nonnull @Qualifier(AsyncConfig.VIES_BATCH_EXECUTOR) ExecutorService batchExecutor,
+                                 @Nonnull @Qualifier(AsyncConfig.VIES_RETRY_EXECUTOR) ExecutorService retryExecutor,
+                                 @Nonnull @Qualifier(AsyncConfig.VIES_EXECUTOR) ExecutorService viesExecutor,
+                                 @Value("${vies.batch.parallelism:8}") int batchParallelism) {
         this.vatValidationRepository = Objects.requireNonNull(vatValidationRepository, "vatValidationRepository must not be null");
+        this.viesResultCache = Objects.requireNonNull(viesResultCache, "viesResultCache must not be null");
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient must not be null");
+        this.viesCircuitBreaker = Objects.requireNonNull(viesCircuitBreaker, "viesCircuitBreaker must not be null");
+        this.batchExecutor = Objects.requireNonNull(batchExecutor, "batchExecutor must not be null");
+        this.retryExecutor = Objects.requireNonNull(retryExecutor, "retryExecutor must not be null");
+        this.viesExecutor = Objects.requireNonNull(viesExecutor, "viesExecutor must not be null");
+        this.batchPermits = new Semaphore(Math.max(1, batchParallelism));
     }
 
     //~ ------------------------------------------------------------------------------------------------
@@ -119,49 +180,83 @@ public class ViesValidationService {
     //~ ------------------------------------------------------------------------------------------------
 
     /**
-     * Job planifié pour retenter les validations en échec
+     * Retente les validations VIES indisponibles, par lots réservés en base (FOR UPDATE SKIP LOCKED) : chaque ligne
+     * n'est traitée que par une instance à la fois, même avec plusieurs répliques du backend.
      */
-    @Scheduled(fixedRate = 900000) // Toutes les 15 minutes
-    @Transactional
+    @Scheduled(fixedDelayString = "${vies.retry.poll-interval:60000}")
     public void retryFailedValidations() {
-        List<VatValidation> retryable = vatValidationRepository.findRetryableValidations(
-            maxRetryAttempts, LocalDateTime.now());
-
-        for (VatValidation validation : retryable) {
-            try {
-                log.info("Retry validation pour {}", maskVatNumber(validation.getVatNumber()));
-                String countryCode = validation.getCountryCode();
-                String vatNumberWithoutCountry = validation.getVatNumberWithoutCountry();
+        int limit = Math.max(1, retryBatchSize);
+        int claimed;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = vatValidationRepository.claimRetries(maxRetryAttempts, now,
+                now.plusSeconds(retryLeaseSeconds), limit);
+            claimed = ids.size();
+            if (claimed > 0) {
+                retryBatch(ids);
+            }
+        } while (claimed >= limit);
+    }
 
-                ViesResponse response = executeViesRequest(countryCode, vatNumberWithoutCountry);
+    /**
+     * Valide un lot de numéros : normalisation, contrôle du format et dédoublonnage locaux, résultats en cache servis
+     * immédiatement sur le thread appelant, puis appels VIES sur l'exécuteur partagé des lots, avec une concurrence
+     * bornée par État membre et au total (tous lots confondus). Les résultats sont transmis à {@code onResult} un à la
+     * fois, dès qu'ils sont connus ; le thread appelant n'attend pas les appels VIES.
+     *
+     * @return un futur terminé avec le nombre de numéros distincts une fois tous les résultats transmis, ou en erreur
+     * si {@code onResult} échoue ; l'annuler abandonne les numéros restants
+     */
+    @Nonnull
+    public CompletableFuture<Integer> validateBatch(@Nonnull Shop shop,
+                                                    @Nonnull Collection<String> vatNumbers,
+                                                    @Nonnull Consumer<VatValidationResult> onResult) {
+        Set<String> seen = new HashSet<>();
+        Map<String, Queue<String>> pendingByCountry = new LinkedHashMap<>();
+        int pending = 0;
+
+        for (String vatNumber : vatNumbers) {
+            String normalizedVat = VatNumberParser.normalize(vatNumber);
+            if (normalizedVat.isEmpty() || !seen.add(normalizedVat)) {
+                continue;
+            }
+            String countryCode = VatNumberParser.countryCode(normalizedVat);
+            if (countryCode == null || !VatNumberParser.isValid(normalizedVat)) {
+                // Format ou clé incorrects : réponse locale, ni appel VIES ni enregistrement
+                onResult.accept(localResult(normalizedVat, countryCode, ValidationStatus.FORMAT_ERROR));
+                continue;
+            }
+            VatValidationResult cached = viesResultCache.getIfPresent(normalizedVat);
+            if (cached != null) {
+                onResult.accept(cached);
+                continue;
+            }
+            pendingByCountry.computeIfAbsent(countryCode, k -> new ConcurrentLinkedQueue<>()).add(normalizedVat);
+            pending++;
+        }
 
-                if (response.isValid()) {
-                    validation.setValidationStatus(ValidationStatus.VALID);
-                    validation.setCompanyName(response.getCompanyName());
-                    validation.setCompanyAddress(response.getCompanyAddress());
-                } else {
-                    validation.setValidationStatus(ValidationStatus.INVALID);
-                }
-                validation.setValidationDate(LocalDateTime.now());
-                validation.setNextRetryAt(null);
-                vatValidationRepository.save(validation);
+        log.info("Validation TVA par lot pour shop={}: {} numéros distincts, {} à vérifier ({} pays)",
+            shop.getShopifyDomain(), seen.size(), pending, pendingByCountry.size());
+        if (pending == 0) {
+            return CompletableFuture.completedFuture(seen.size());
+        }
 
-            } catch (ViesUnavailableException e) {
-                validation.setRetryCount(validation.getRetryCount() + 1);
-                validation.setNextRetryAt(LocalDateTime.now().plusMinutes(30));
-                vatValidationRepository.save(validation);
-            } catch (Exception e) {
-                log.error("Erreur retry validation: {}", e.getMessage());
-                validation.setValidationStatus(ValidationStatus.ERROR);
-                validation.setErrorMessage(e.getMessage());
-                vatValidationRepository.save(validation);
+        // Par pays, au plus perCountryConcurrency tâches vident la file : un pays lent n'occupe pas tout le pool
+        int countryWorkers = Math.max(1, perCountryConcurrency);
+        BatchProgress progress = new BatchProgress(pending, seen.size(), onResult);
+        for (Map.Entry<String, Queue<String>> entry : pendingByCountry.entrySet()) {
+            int workers = Math.min(countryWorkers, entry.getValue().size());
+            for (int i = 0; i < workers; i++) {
+                batchExecutor.execute(() -> drainCountry(shop, entry.getKey(), entry.getValue(), progress));
             }
         }
+        return progress.future;
     }
 
     /**
      * Valide un numéro de TVA intracommunautaire.
      * Cette méthode est le point d'entrée principal pour la validation.
+     * Un résultat récent (selon son statut) est servi par {@link ViesResultCache} sans nouvel appel VIES.
      */
     @Transactional
     @Nonnull
@@ -171,44 +266,28 @@ public class ViesValidationService {
         log.info("Validation TVA demandée pour shop={}, vatNumber={}", shop.getShopifyDomain(), maskVatNumber(vatNumber));
 
         // Normalisation du numéro
-        String normalizedVat = normalizeVatNumber(vatNumber);
-
-        // Extraction du code pays
-        String countryCode = extractCountryCode(normalizedVat);
-
-        if (countryCode == null || !EU_COUNTRY_CODES.contains(countryCode)) {
-            return createValidationResult(shop, normalizedVat, null, shopifyOrderId,
-                ValidationStatus.FORMAT_ERROR, "Code pays non reconnu ou non-UE", null, null);
-        }
-
-        // Vérification du format
-        if (!isValidFormat(countryCode, normalizedVat)) {
-            return createValidationResult(shop, normalizedVat, countryCode, shopifyOrderId,
-                ValidationStatus.FORMAT_ERROR, "Format du numéro de TVA incorrect", null, null);
-        }
-
-        // Vérifier si une validation récente existe (cache de 24h)
-        Optional<VatValidation> recentValidation = findRecentValidation(normalizedVat);
-        if (recentValidation.isPresent() && recentValidation.get().getValidationStatus() == ValidationStatus.VALID) {
-            log.info("Validation en cache trouvée pour {}", maskVatNumber(normalizedVat));
-            return toValidationResult(recentValidation.get());
-        }
+        String normalizedVat = VatNumberParser.normalize(vatNumber);
 
-        // Appel au service VIES
-        return callViesService(shop, normalizedVat, countryCode, shopifyOrderId);
+        return validateNormalized(shop, normalizedVat, shopifyOrderId);
     }
 
     /**
-     * Validation asynchrone (ne bloque pas le checkout)
+     * Validation asynchrone (ne bloque pas le checkout). Exécuteur VIES saturé : la validation n'est pas perdue,
+     * elle est enregistrée comme indisponible et reprise par {@link #retryFailedValidations}.
      */
-    @Async
     public void validateVatNumberAsync(@Nonnull Shop shop,
                                        @Nonnull String vatNumber,
                                        @Nullable String shopifyOrderId) {
         try {
-            validateVatNumber(shop, vatNumber, shopifyOrderId);
-        } catch (Exception e) {
-            log.error("Erreur validation async: {}", e.getMessage());
+            viesExecutor.execute(() -> {
+                try {
+                    validateVatNumber(shop, vatNumber, shopifyOrderId);
+                } catch (Exception e) {
+                    log.error("Erreur validation async: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            deferValidation(shop, vatNumber, shopifyOrderId);
         }
     }
 
@@ -226,9 +305,15 @@ public class ViesValidationService {
         Exception lastException = null;
 
         while (attempts < maxRetryAttempts) {
+            // État membre en panne : ni appel ni attente, la validation sera retentée par le job planifié
+            if (!viesCircuitBreaker.tryAcquire(countryCode)) {
+                log.info("Disjoncteur VIES ouvert pour {}, validation reportée", countryCode);
+                break;
+            }
             attempts++;
             try {
                 ViesResponse response = executeViesRequest(countryCode, vatNumberWithoutCountry);
+                viesCircuitBreaker.recordSuccess(countryCode);
 
                 if (response.isValid()) {
                     return createValidationResult(shop, vatNumber, countryCode, shopifyOrderId,
@@ -237,10 +322,17 @@ public class ViesValidationService {
                     return createValidationResult(shop, vatNumber, countryCode, shopifyOrderId,
                         ValidationStatus.INVALID, "Numéro de TVA non enregistré dans VIES", response, requestId);
                 }
+            } catch (ViesSaturatedException e) {
+                // Aucune connexion libre dans le pool local : VIES n'a pas été appelé, ni succès ni échec pour le pays
+                lastException = e;
+                viesCircuitBreaker.release(countryCode);
+                log.warn("Pool de connexions VIES saturé, validation reportée pour {}", countryCode);
+                break;
             } catch (ViesUnavailableException e) {
                 lastException = e;
-                log.warn("VIES indisponible, tentative {}/{}", attempts, maxRetryAttempts);
-                if (attempts < maxRetryAttempts) {
+                viesCircuitBreaker.recordFailure(countryCode);
+                log.warn("VIES indisponible pour {}, tentative {}/{}", countryCode, attempts, maxRetryAttempts);
+                if (attempts < maxRetryAttempts && viesCircuitBreaker.isClosed(countryCode)) {
                     try {
                         Thread.sleep(retryDelay * attempts);
                     } catch (InterruptedException ie) {
@@ -250,6 +342,8 @@ public class ViesValidationService {
                 }
             } catch (Exception e) {
                 lastException = e;
+                // VIES a répondu (faute de requête) : l'État membre est joignable
+                viesCircuitBreaker.recordSuccess(countryCode);
                 log.error("Erreur lors de l'appel VIES: {}", e.getMessage());
                 break;
             }
@@ -293,7 +387,7 @@ public class ViesValidationService {
         }
 
         if (status == ValidationStatus.UNAVAILABLE) {
-            validation.setNextRetryAt(LocalDateTime.now().plusMinutes(15));
+            validation.setNextRetryAt(nextRetryAt(0));
         }
 
         VatValidation saved = vatValidationRepository.save(validation);
@@ -302,96 +396,135 @@ public class ViesValidationService {
         return toValidationResult(saved);
     }
 
-    /**
-     * Exécute la requête SOAP vers VIES
-     */
     @Nonnull
-    private ViesResponse executeViesRequest(@Nonnull String countryCode,
-                                            @Nonnull String vatNumber) throws Exception {
-        // Adapter le code pays pour la Grèce (EL dans VIES)
-        String viesCountryCode = "GR".equals(countryCode) ? "EL" : countryCode;
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
 
+    /**
+     * Validation asynchrone refusée : un numéro au format correct est enregistré comme indisponible (reprise planifiée),
+     * un numéro erroné est rejeté localement, sans appel VIES
+     */
+    private void deferValidation(@Nonnull Shop shop,
+                                 @Nonnull String vatNumber,
+                                 @Nullable String shopifyOrderId) {
+        String normalizedVat = VatNumberParser.normalize(vatNumber);
+        String countryCode = VatNumberParser.countryCode(normalizedVat);
         try {
-            // Création de la connexion SOAP
-            SOAPConnectionFactory soapConnectionFactory = SOAPConnectionFactory.newInstance();
-            SOAPConnection connection = soapConnectionFactory.createConnection();
+            if (countryCode == null || !VatNumberParser.isValid(normalizedVat)) {
+                validateUncached(shop, normalizedVat, shopifyOrderId);
+                return;
+            }
+            log.warn("Exécuteur VIES saturé, validation de {} reportée", maskVatNumber(normalizedVat));
+            createValidationResult(shop, normalizedVat, countryCode, shopifyOrderId, ValidationStatus.UNAVAILABLE,
+                "Service de vérification temporairement indisponible", null, UUID.randomUUID().toString());
+            viesResultCache.invalidate(normalizedVat);
+        } catch (Exception e) {
+            log.error("Erreur report validation async: {}", e.getMessage());
+        }
+    }
 
+    /**
+     * Valide les numéros d'un pays jusqu'à épuisement de sa file (ou abandon du lot), sous le quota d'appels simultanés
+     * du pays puis sous le quota global des lots
+     */
+    private void drainCountry(@Nonnull Shop shop,
+                              @Nonnull String countryCode,
+                              @Nonnull Queue<String> vatNumbers,
+                              @Nonnull BatchProgress progress) {
+        Semaphore permits = countryPermits.computeIfAbsent(countryCode,
+            k -> new Semaphore(Math.max(1, perCountryConcurrency)));
+        String vatNumber;
+        while (!progress.future.isDone() && (vatNumber = vatNumbers.poll()) != null) {
+            VatValidationResult result;
             try {
-                // Création du message SOAP
-                MessageFactory messageFactory = MessageFactory.newInstance();
-                SOAPMessage soapMessage = messageFactory.createMessage();
-                SOAPPart soapPart = soapMessage.getSOAPPart();
-
-                // Construction de l'enveloppe
-                SOAPEnvelope envelope = soapPart.getEnvelope();
-                envelope.addNamespaceDeclaration("urn", "urn:ec.europa.eu:taxud:vies:services:checkVat:types");
-
-                // Construction du body
-                SOAPBody soapBody = envelope.getBody();
-                SOAPElement checkVat = soapBody.addChildElement("checkVat", "urn");
-                checkVat.addChildElement("countryCode", "urn").addTextNode(viesCountryCode);
-                checkVat.addChildElement("vatNumber", "urn").addTextNode(vatNumber);
-
-                soapMessage.saveChanges();
-
-                // Envoi de la requête
-                String endpoint = "https://ec.europa.eu/taxation_customs/vies/services/checkVatService";
-                SOAPMessage response = connection.call(soapMessage, endpoint);
-
-                // Parsing de la réponse
-                return parseViesResponse(response);
-
-            } finally {
-                connection.close();
-            }
-        } catch (SOAPException e) {
-            if (isViesUnavailable(e)) {
-                throw new ViesUnavailableException("VIES service unavailable", e);
+                permits.acquire();
+                try {
+                    batchPermits.acquire();
+                    try {
+                        result = validateNormalized(shop, vatNumber, null);
+                    } finally {
+                        batchPermits.release();
+                    }
+                } finally {
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                // Exécuteur arrêté
+                Thread.currentThread().interrupt();
+                progress.future.cancel(false);
+                return;
+            } catch (RuntimeException e) {
+                log.error("Erreur validation par lot pour {}: {}", maskVatNumber(vatNumber), e.getMessage());
+                result = localResult(vatNumber, countryCode, ValidationStatus.ERROR);
             }
-            throw e;
+            progress.deliver(result);
         }
     }
 
-    @Nullable
-    private String extractCountryCode(@Nonnull String vatNumber) {
-        if (vatNumber.length() < 2) {
-            return null;
-        }
-        String prefix = vatNumber.substring(0, 2);
-        // Cas spécial Grèce: EL -> GR
-        if ("EL".equals(prefix)) {
-            return "GR";
+    /**
+     * Exécute la requête SOAP vers VIES sur le client HTTP dédié (connexions TLS réutilisées)
+     */
+    @Nonnull
+    private ViesResponse executeViesRequest(@Nonnull String countryCode,
+                                            @Nonnull String vatNumber) throws IOException {
+        // Adapter le code pays pour la Grèce (EL dans VIES)
+        String viesCountryCode = "GR".equals(countryCode) ? "EL" : countryCode;
+
+        HttpPost request = new HttpPost(VIES_ENDPOINT);
+        request.setConfig(RequestConfig.custom()
+            .setResponseTimeout(Timeout.ofMilliseconds(viesTimeout))
+            .build());
+        request.setHeader("SOAPAction", "");
+        request.setEntity(new StringEntity(String.format(CHECK_VAT_ENVELOPE, viesCountryCode, vatNumber), SOAP_CONTENT_TYPE));
+
+        try {
+            // Une faute SOAP arrive avec un statut 500 : le corps est analysé quel que soit le statut
+            return httpClient.execute(request, httpResponse -> {
+                HttpEntity entity = httpResponse.getEntity();
+                if (entity == null) {
+                    throw new ViesUnavailableException("VIES empty response (HTTP " + httpResponse.getCode() + ")");
+                }
+                try (InputStream content = entity.getContent()) {
+                    return parseViesResponse(content);
+                }
+            });
+        } catch (ConnectionRequestTimeoutException | RequestFailedException e) {
+            // Pool local saturé ou bail de connexion interrompu : la requête n'a pas été émise
+            throw new ViesSaturatedException("VIES connection pool exhausted", e);
+        } catch (IOException e) {
+            // Connexion refusée, délai dépassé, réponse tronquée...
+            throw new ViesUnavailableException("VIES service unavailable", e);
         }
-        return EU_COUNTRY_CODES.contains(prefix) ? prefix : null;
     }
 
+    /**
+     * Dernière validation enregistrée du numéro (sa fraîcheur est jugée par {@link ViesResultCache})
+     */
     @Nonnull
-    private Optional<VatValidation> findRecentValidation(@Nonnull String vatNumber) {
-        LocalDateTime threshold = LocalDateTime.now().minusHours(24);
+    private Optional<VatValidation> findLatestValidation(@Nonnull String vatNumber) {
         return vatValidationRepository.findLatestByVatNumber(vatNumber,
             PageRequest.of(0, 1))
             .stream()
-            .filter(v -> v.getValidationDate().isAfter(threshold))
             .findFirst();
     }
 
-    private boolean isValidFormat(@Nonnull String countryCode,
-                                  @Nonnull String vatNumber) {
-        Pattern pattern = VAT_PATTERNS.get(countryCode);
-        if (pattern == null) {
-            return true; // Accepter si pas de pattern défini
-        }
-        return pattern.matcher(vatNumber).matches();
-    }
-
-    private boolean isViesUnavailable(@Nonnull SOAPException e) {
-        String message = e.getMessage();
-        return message != null && (
-            message.contains("MS_UNAVAILABLE") ||
-            message.contains("SERVICE_UNAVAILABLE") ||
-            message.contains("timeout") ||
-            message.contains("Connection refused")
-        );
+    /**
+     * Résultat calculé sans appel VIES ni enregistrement
+     */
+    @Nonnull
+    private VatValidationResult localResult(@Nonnull String vatNumber,
+                                            @Nullable String countryCode,
+                                            @Nonnull ValidationStatus status) {
+        return toValidationResult(VatValidation.builder()
+            .vatNumber(vatNumber)
+            .countryCode(countryCode)
+            .validationStatus(status)
+            .validationDate(LocalDateTime.now())
+            .build());
     }
 
     @Nonnull
@@ -402,48 +535,145 @@ public class ViesValidationService {
         return vatNumber.substring(0, 4) + "***" + vatNumber.substring(vatNumber.length() - 2);
     }
 
+    /**
+     * Échéance de la prochaine tentative : délai doublé à chaque échec et plafonné, dont la moitié est tirée au hasard
+     * pour étaler les reprises après une panne d'un État membre
+     */
     @Nonnull
-    private String normalizeVatNumber(@Nullable String vatNumber) {
-        if (vatNumber == null) {
-            return "";
-        }
-        return vatNumber.toUpperCase().replaceAll("[^A-Z0-9]", "");
+    private LocalDateTime nextRetryAt(int retryCount) {
+        long delay = Math.min(Math.max(1, retryBaseDelaySeconds) << Math.min(Math.max(0, retryCount), 20),
+            Math.max(1, retryMaxDelaySeconds));
+        long jitter = delay / 2;
+        return LocalDateTime.now().plusSeconds(delay - jitter + ThreadLocalRandom.current().nextLong(jitter + 1));
     }
 
     /**
-     * Parse la réponse VIES
+     * Parse la réponse VIES en une passe StAX (champs checkVatResponse ou faute SOAP)
      */
     @Nonnull
-    private ViesResponse parseViesResponse(@Nonnull SOAPMessage response) throws SOAPException {
-        SOAPBody responseBody = response.getSOAPBody();
+    private ViesResponse parseViesResponse(@Nonnull InputStream content) throws IOException {
+        ViesResponse viesResponse = new ViesResponse();
+        String faultString = null;
+        boolean hasValid = false;
 
-        if (responseBody.hasFault()) {
-            String faultString = responseBody.getFault().getFaultString();
-            if (faultString.contains("MS_UNAVAILABLE") || faultString.contains("SERVICE_UNAVAILABLE")) {
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(content);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (reader.getLocalName()) {
+                        case "valid" -> {
+                            viesResponse.setValid("true".equals(reader.getElementText().trim()));
+                            hasValid = true;
+                        }
+                        case "name" -> viesResponse.setCompanyName(reader.getElementText());
+                        case "address" -> viesResponse.setCompanyAddress(reader.getElementText());
+                        case "requestDate" -> viesResponse.setRequestDate(reader.getElementText());
+                        case "faultstring" -> faultString = reader.getElementText();
+                        default -> {
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new ViesUnavailableException("VIES unreadable response", e);
+        }
+
+        if (faultString != null) {
+            if (UNAVAILABLE_FAULTS.stream().anyMatch(faultString::contains)) {
                 throw new ViesUnavailableException("VIES member state unavailable");
             }
             throw new RuntimeException("VIES fault: " + faultString);
         }
+        if (!hasValid) {
+            throw new ViesUnavailableException("VIES response without result");
+        }
 
-        ViesResponse viesResponse = new ViesResponse();
+        return viesResponse;
+    }
 
-        NodeList nodeList = responseBody.getElementsByTagName("*");
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node node = nodeList.item(i);
-            String nodeName = node.getLocalName();
-            String nodeValue = node.getTextContent();
-
-            if (nodeName != null) {
-                switch (nodeName) {
-                    case "valid" -> viesResponse.setValid("true".equals(nodeValue));
-                    case "name" -> viesResponse.setCompanyName(nodeValue);
-                    case "address" -> viesResponse.setCompanyAddress(nodeValue);
-                    case "requestDate" -> viesResponse.setRequestDate(nodeValue);
-                }
+    /**
+     * Retente une validation réservée (un seul appel VIES, sous le quota du pays)
+     */
+    private void retry(@Nonnull VatValidation validation) {
+        String countryCode = validation.getCountryCode();
+        Semaphore permits = countryPermits.computeIfAbsent(countryCode,
+            k -> new Semaphore(Math.max(1, perCountryConcurrency)));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            // Appel non émis : la ligne sera reprise à l'expiration du bail
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            if (!viesCircuitBreaker.tryAcquire(countryCode)) {
+                // État membre toujours indisponible : nouvelle échéance sans consommer de tentative
+                validation.setNextRetryAt(nextRetryAt(validation.getRetryCount()));
+                return;
             }
+            log.info("Retry validation pour {}", maskVatNumber(validation.getVatNumber()));
+            ViesResponse response = executeViesRequest(countryCode, validation.getVatNumberWithoutCountry());
+            viesCircuitBreaker.recordSuccess(countryCode);
+
+            if (response.isValid()) {
+                validation.setValidationStatus(ValidationStatus.VALID);
+                validation.setCompanyName(response.getCompanyName());
+                validation.setCompanyAddress(response.getCompanyAddress());
+            } else {
+                validation.setValidationStatus(ValidationStatus.INVALID);
+            }
+            validation.setValidationDate(LocalDateTime.now());
+            validation.setNextRetryAt(null);
+
+        } catch (ViesSaturatedException e) {
+            // Requête non émise : nouvelle échéance sans consommer de tentative ni compter d'échec pour le pays
+            viesCircuitBreaker.release(countryCode);
+            validation.setNextRetryAt(nextRetryAt(validation.getRetryCount()));
+        } catch (ViesUnavailableException e) {
+            viesCircuitBreaker.recordFailure(countryCode);
+            validation.setRetryCount(validation.getRetryCount() + 1);
+            validation.setNextRetryAt(nextRetryAt(validation.getRetryCount()));
+        } catch (Exception e) {
+            viesCircuitBreaker.recordSuccess(countryCode);
+            log.error("Erreur retry validation: {}", e.getMessage());
+            validation.setValidationStatus(ValidationStatus.ERROR);
+            validation.setErrorMessage(e.getMessage());
+        } finally {
+            permits.release();
         }
+        viesResultCache.invalidate(validation.getVatNumber());
+    }
 
-        return viesResponse;
+    /**
+     * Retente un lot réservé en parallèle sur l'exécuteur des reprises, puis enregistre les résultats en une mise à jour
+     * groupée (batch JDBC)
+     */
+    private void retryBatch(@Nonnull List<Long> ids) {
+        List<VatValidation> validations = vatValidationRepository.findAllById(ids);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(validations.size());
+            for (VatValidation validation : validations) {
+                tasks.add(() -> {
+                    retry(validation);
+                    return null;
+                });
+            }
+            for (Future<Void> future : retryExecutor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Erreur retry validations: {}", e.getCause().getMessage());
+        }
+
+        vatValidationRepository.saveAll(validations);
+        log.debug("Lot de retries VIES: {} validations réservées", ids.size());
     }
 
     /**
@@ -465,10 +695,85 @@ public class ViesValidationService {
             .build();
     }
 
+    /**
+     * Valide un numéro normalisé, en passant par {@link ViesResultCache}
+     */
+    @Nonnull
+    private VatValidationResult validateNormalized(@Nonnull Shop shop,
+                                                   @Nonnull String normalizedVat,
+                                                   @Nullable String shopifyOrderId) {
+        return viesResultCache.get(normalizedVat,
+            () -> findLatestValidation(normalizedVat).map(this::toValidationResult).orElse(null),
+            () -> validateUncached(shop, normalizedVat, shopifyOrderId));
+    }
+
+    /**
+     * Valide un numéro normalisé absent du cache : contrôle du format puis appel VIES
+     */
+    @Nonnull
+    private VatValidationResult validateUncached(@Nonnull Shop shop,
+                                                 @Nonnull String normalizedVat,
+                                                 @Nullable String shopifyOrderId) {
+        // Extraction du code pays
+        String countryCode = VatNumberParser.countryCode(normalizedVat);
+
+        if (countryCode == null) {
+            return createValidationResult(shop, normalizedVat, null, shopifyOrderId,
+                ValidationStatus.FORMAT_ERROR, "Code pays non reconnu ou non-UE", null, null);
+        }
+
+        // Vérification du format et de la clé de contrôle : un numéro erroné n'est pas envoyé à VIES
+        if (!VatNumberParser.isValid(normalizedVat)) {
+            return createValidationResult(shop, normalizedVat, countryCode, shopifyOrderId,
+                ValidationStatus.FORMAT_ERROR, "Format du numéro de TVA incorrect", null, null);
+        }
+
+        // Appel au service VIES
+        return callViesService(shop, normalizedVat, countryCode, shopifyOrderId);
+    }
+
     //~ ------------------------------------------------------------------------------------------------
     //~ Nested Classes
     //~ ------------------------------------------------------------------------------------------------
 
+    /**
+     * Avancement d'un lot : transmet les résultats un à la fois et termine le futur après le dernier
+     */
+    private static final class BatchProgress {
+
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Consumer<VatValidationResult> onResult;
+        private int remaining;
+        private final int total;
+
+        private BatchProgress(int remaining,
+                              int total,
+                              @Nonnull Consumer<VatValidationResult> onResult) {
+            this.remaining = remaining;
+            this.total = total;
+            this.onResult = onResult;
+        }
+
+        private void deliver(@Nonnull VatValidationResult result) {
+            lock.lock();
+            try {
+                if (future.isDone()) {
+                    return;
+                }
+                onResult.accept(result);
+                if (--remaining == 0) {
+                    future.complete(total);
+                }
+            } catch (RuntimeException e) {
+                // Destinataire indisponible (client déconnecté...) : le lot est abandonné
+                future.completeExceptionally(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
     private static class ViesResponse {
 
         private String companyAddress;
@@ -519,6 +824,14 @@ public class ViesValidationService {
         }
     }
 
+    private static class ViesSaturatedException extends RuntimeException {
+
+        public ViesSaturatedException(@Nonnull String message,
+                                      @Nonnull Throwable cause) {
+            super(message, cause);
+        }
+    }
+
     private static class ViesUnavailableException extends RuntimeException {
 
         public ViesUnavailableException(@Nonnull String message) {
@@ -530,5 +843,4 @@ public class ViesValidationService {
             super(message, cause);
         }
     }
-
 }
@@ -0,0 +1,337 @@
+package com.euvatease.service;
+
+import com.euvatease.config.AsyncConfig;
+import com.euvatease.dto.ShopifyOrderDto;
+import com.euvatease.entity.WebhookInbox;
+import com.euvatease.repository.WebhookInboxRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Boîte de réception durable des webhooks Shopify (table webhook_inbox).
+ * Le contrôleur y ajoute les livraisons vérifiées ; des workers les réservent par lots (FOR UPDATE SKIP LOCKED),
+ * ce qui permet plusieurs instances du backend. Une livraison en échec est retentée avec un délai croissant.
+ * Les livraisons déjà reçues (X-Shopify-Webhook-Id) ou périmées (updated_at de la commande) sont écartées à l'ajout,
+ * d'abord par un cache mémoire borné puis par les index de la table.
+ * Les livraisons d'une même commande reçues dans la fenêtre de regroupement sont fusionnées : seule la plus récente
+ * est traitée.
+ */
+@Service
+public class WebhookInboxService {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookInboxService.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final int MAX_RETRY_DELAY_SECONDS = 3600;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    private final ExecutorService executor;
+
+    @Nonnull
+    private final ObjectMapper objectMapper;
+
+    @Nonnull
+    private final ShopifyService shopifyService;
+
+    @Nonnull
+    private final WebhookInboxRepository webhookInboxRepository;
+
+    @Value("${webhooks.inbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${webhooks.inbox.coalesce-window-seconds:3}")
+    private int coalesceWindowSeconds;
+
+    @Value("${webhooks.inbox.dedup-cache-size:10000}")
+    private int dedupCacheSize;
+
+    @Value("${webhooks.inbox.lease-seconds:300}")
+    private int leaseSeconds;
+
+    @Value("${webhooks.inbox.max-attempts:10}")
+    private int maxAttempts;
+
+    // Livraisons récemment enregistrées, par boutique et identifiant de webhook
+    private Map<String, Boolean> recentDeliveries;
+
+    // Dernière version (updated_at) enregistrée, par boutique et commande
+    private Map<String, LocalDateTime> recentOrderVersions;
+
+    @Value("${webhooks.inbox.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${webhooks.inbox.retry-delay-seconds:30}")
+    private int retryDelaySeconds;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Constructors
+    //~ ------------------------------------------------------------------------------------------------
+
+    public WebhookInboxService(@Nonnull ShopifyService shopifyService,
+                               @Nonnull WebhookInboxRepository webhookInboxRepository,
+                               @Nonnull ObjectMapper objectMapper,
+                               @Nonnull @Qualifier(AsyncConfig.WEBHOOK_EXECUTOR) ExecutorService executor) {
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+        this.shopifyService = Objects.requireNonNull(shopifyService, "shopifyService must not be null");
+        this.webhookInboxRepository = Objects.requireNonNull(webhookInboxRepository, "webhookInboxRepository must not be null");
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Enregistre une livraison vérifiée ; elle sera traitée par les workers.
+     * Une livraison déjà reçue, ou portant une version de commande plus ancienne que la dernière reçue, est écartée.
+     *
+     * @return true si la livraison a été ajoutée
+     */
+    public boolean append(@Nonnull String shopDomain,
+                          @Nonnull WebhookInbox.Topic topic,
+                          @Nullable String webhookId,
+                          @Nonnull String payload) {
+        String deliveryKey = webhookId != null ? shopDomain + "/" + webhookId : null;
+        if (deliveryKey != null) {
+            synchronized (recentDeliveries) {
+                if (recentDeliveries.containsKey(deliveryKey)) {
+                    log.debug("Webhook {} {} déjà reçu", topic, webhookId);
+                    return false;
+                }
+            }
+        }
+
+        // Les remboursements ne portent pas de version de commande
+        ShopifyOrderDto version = topic != WebhookInbox.Topic.REFUNDS_CREATE ? readOrderVersion(payload) : null;
+        String orderId = version != null ? version.getId() : null;
+        LocalDateTime orderUpdatedAt = version != null ? version.getUpdatedAt() : null;
+        String orderKey = orderId != null ? shopDomain + "/" + orderId : null;
+        if (orderKey != null && orderUpdatedAt != null) {
+            synchronized (recentOrderVersions) {
+                LocalDateTime latest = recentOrderVersions.get(orderKey);
+                if (latest != null && !orderUpdatedAt.isAfter(latest)) {
+                    log.debug("Webhook {} périmé pour la commande {} ({} <= {})", topic, orderId, orderUpdatedAt, latest);
+                    return false;
+                }
+            }
+        }
+
+        boolean added = webhookInboxRepository.append(shopDomain, topic.name(), webhookId, orderId, orderUpdatedAt,
+            payload, coalesceWindowSeconds) > 0;
+
+        // Ajoutée ou écartée par les index, la livraison est désormais connue de la table
+        if (deliveryKey != null) {
+            synchronized (recentDeliveries) {
+                recentDeliveries.put(deliveryKey, Boolean.TRUE);
+            }
+        }
+        if (added && orderKey != null && orderUpdatedAt != null) {
+            synchronized (recentOrderVersions) {
+                recentOrderVersions.merge(orderKey, orderUpdatedAt, (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+        if (!added) {
+            log.debug("Webhook {} {} écarté (doublon ou version périmée)", topic, webhookId);
+        }
+        return added;
+    }
+
+    /**
+     * Vide la boîte de réception lot par lot tant que des livraisons sont disponibles
+     */
+    @Scheduled(fixedDelayString = "${webhooks.inbox.poll-interval:1000}")
+    public void drain() {
+        int claimed;
+        do {
+            List<Long> ids = webhookInboxRepository.claimBatch(batchSize, leaseSeconds);
+            claimed = ids.size();
+            if (claimed > 0) {
+                processBatch(ids);
+            }
+        } while (claimed >= batchSize);
+    }
+
+    /**
+     * Job planifié de purge des livraisons traitées
+     */
+    @Scheduled(cron = "0 15 4 * * *") // Tous les jours à 4h15
+    public void purgeProcessed() {
+        int deleted = webhookInboxRepository.purgeProcessed(LocalDateTime.now().minusDays(retentionDays));
+        log.info("Webhooks traités purgés: {}", deleted);
+    }
+
+    @PostConstruct
+    void initCaches() {
+        recentDeliveries = new BoundedCache<>(dedupCacheSize);
+        recentOrderVersions = new BoundedCache<>(dedupCacheSize);
+    }
+
+    /**
+     * Livraison la plus récente (updated_at, puis ordre de réception) de chaque commande
+     */
+    @Nonnull
+    private static Map<String, WebhookInbox> latestByOrder(@Nonnull List<WebhookInbox> events) {
+        Comparator<WebhookInbox> recency = Comparator
+            .comparing(WebhookInbox::getOrderUpdatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(WebhookInbox::getId);
+
+        Map<String, WebhookInbox> latest = new HashMap<>();
+        for (WebhookInbox event : events) {
+            if (event.getOrderId() != null) {
+                latest.merge(event.getOrderId(), event, (a, b) -> recency.compare(a, b) >= 0 ? a : b);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Traite un lot réservé : une tâche par boutique, qui enchaîne ses livraisons dans l'ordre de réception.
+     * Pour chaque commande, seule la livraison la plus récente est traitée ; les précédentes sont marquées traitées.
+     */
+    private void processBatch(@Nonnull List<Long> ids) {
+        List<WebhookInbox> events = new ArrayList<>(webhookInboxRepository.findAllById(ids));
+        events.sort(Comparator.comparing(WebhookInbox::getId));
+
+        Map<String, List<WebhookInbox>> byShop = new LinkedHashMap<>();
+        for (WebhookInbox event : events) {
+            byShop.computeIfAbsent(event.getShopDomain(), k -> new ArrayList<>()).add(event);
+        }
+
+        List<Callable<List<Long>>> tasks = new ArrayList<>(byShop.size());
+        for (List<WebhookInbox> shopEvents : byShop.values()) {
+            Map<String, WebhookInbox> latestByOrder = latestByOrder(shopEvents);
+            tasks.add(() -> {
+                List<Long> done = new ArrayList<>(shopEvents.size());
+                for (WebhookInbox event : shopEvents) {
+                    if (event.getOrderId() != null && latestByOrder.get(event.getOrderId()) != event) {
+                        // Remplacée par une livraison plus récente de la même commande
+                        done.add(event.getId());
+                    } else if (process(event)) {
+                        done.add(event.getId());
+                    }
+                }
+                return done;
+            });
+        }
+
+        List<Long> done = new ArrayList<>(events.size());
+        try {
+            for (Future<List<Long>> future : executor.invokeAll(tasks)) {
+                done.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Erreur traitement lot webhooks: {}", e.getMessage());
+        }
+
+        if (!done.isEmpty()) {
+            webhookInboxRepository.markDone(done);
+        }
+        log.debug("Lot webhooks: {} réservés, {} traités", ids.size(), done.size());
+    }
+
+    /**
+     * Traite une livraison ; en cas d'échec, la replanifie
+     *
+     * @return true si la livraison a été traitée
+     */
+    private boolean process(@Nonnull WebhookInbox event) {
+        try {
+            switch (event.getTopic()) {
+                case REFUNDS_CREATE -> shopifyService.processRefundWebhook(event.getShopDomain(), event.getPayload());
+                default -> shopifyService.processOrderWebhook(event.getShopDomain(), event.getPayload());
+            }
+            return true;
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            if (error.length() > MAX_ERROR_LENGTH) {
+                error = error.substring(0, MAX_ERROR_LENGTH);
+            }
+            int attempts = event.getAttempts();
+            webhookInboxRepository.reschedule(event.getId(), error, maxAttempts, retryDelay(attempts));
+
+            if (attempts >= maxAttempts) {
+                log.error("Webhook {} {} abandonné après {} tentatives: {}", event.getTopic(), event.getId(), attempts, error);
+            } else {
+                log.warn("Webhook {} {} en échec (tentative {}): {}", event.getTopic(), event.getId(), attempts, error);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Lit l'identifiant et la date de mise à jour d'une commande, sans lire le reste de la livraison
+     *
+     * @return null si la livraison est illisible (l'erreur sera remontée par le worker)
+     */
+    @Nullable
+    private ShopifyOrderDto readOrderVersion(@Nonnull String payload) {
+        try (JsonParser parser = objectMapper.createParser(payload)) {
+            return ShopifyOrderReader.readVersion(parser);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Délai avant nouvelle tentative : doublé à chaque échec, plafonné à une heure
+     */
+    private int retryDelay(int attempts) {
+        long delay = (long) retryDelaySeconds << Math.min(Math.max(0, attempts - 1), 20);
+        return (int) Math.min(delay, MAX_RETRY_DELAY_SECONDS);
+    }
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Nested Classes
+    //~ ------------------------------------------------------------------------------------------------
+
+    /**
+     * Cache LRU borné (non synchronisé)
+     */
+    private static final class BoundedCache<K, V> extends LinkedHashMap<K, V> {
+
+        private final int capacity;
+
+        BoundedCache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = Math.max(1, capacity);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
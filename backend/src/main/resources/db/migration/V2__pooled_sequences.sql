@@ -0,0 +1,16 @@
+-- =====================================================
+-- EU VAT Ease - Pooled id sequences
+-- Version: 2.0.0
+-- Description: Sequence ids allocated by blocks of 50 for
+-- oss_report_lines and vat_validations (JDBC batch inserts)
+-- =====================================================
+
+-- Les identifiants sont désormais alloués par Hibernate (optimiseur pooled) :
+-- chaque appel à nextval réserve un bloc de 50 valeurs.
+ALTER SEQUENCE oss_report_lines_id_seq INCREMENT BY 50;
+ALTER SEQUENCE vat_validations_id_seq INCREMENT BY 50;
+
+-- Plus de valeur par défaut sur la colonne : un nextval hors Hibernate
+-- pourrait retomber dans un bloc déjà réservé.
+ALTER TABLE oss_report_lines ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE vat_validations ALTER COLUMN id DROP DEFAULT;
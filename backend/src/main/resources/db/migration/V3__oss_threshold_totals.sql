@@ -0,0 +1,21 @@
+-- =====================================================
+-- EU VAT Ease - OSS threshold running totals
+-- Version: 3.0.0
+-- Description: Per-shop, per-year cross-border EU sales,
+-- maintained at order ingest and reconciled nightly
+-- =====================================================
+
+-- =====================================================
+-- TABLE: oss_threshold_totals
+-- Running total of EU sales outside the shop country
+-- (net of refunds) used for the 10 000 € OSS threshold
+-- =====================================================
+CREATE TABLE oss_threshold_totals (
+    id BIGSERIAL PRIMARY KEY,
+    shop_id BIGINT NOT NULL REFERENCES shops(id) ON DELETE CASCADE,
+    year INTEGER NOT NULL,
+    eu_sales DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    reconciled_at TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE(shop_id, year)
+);
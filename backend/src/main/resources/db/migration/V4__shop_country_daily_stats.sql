@@ -0,0 +1,36 @@
+-- =====================================================
+-- EU VAT Ease - Dashboard sales rollup
+-- Version: 4.0.0
+-- Description: Per-shop, per-country, per-day order stats
+-- maintained at order ingest for the dashboard
+-- =====================================================
+
+-- =====================================================
+-- TABLE: shop_country_daily_stats
+-- One row per shop / customer country / order day
+-- (country_code '' when the order has no billing country)
+-- =====================================================
+CREATE TABLE shop_country_daily_stats (
+    id BIGSERIAL PRIMARY KEY,
+    shop_id BIGINT NOT NULL REFERENCES shops(id) ON DELETE CASCADE,
+    country_code VARCHAR(2) NOT NULL DEFAULT '',
+    stat_date DATE NOT NULL,
+    orders_count INTEGER NOT NULL DEFAULT 0,
+    total_amount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    tax_amount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    vat_errors INTEGER NOT NULL DEFAULT 0,
+    UNIQUE(shop_id, stat_date, country_code)
+);
+
+-- Reprise de l'historique existant
+INSERT INTO shop_country_daily_stats (shop_id, country_code, stat_date, orders_count, total_amount, tax_amount, vat_errors)
+SELECT shop_id,
+       COALESCE(customer_country_code, ''),
+       CAST(order_date AS DATE),
+       COUNT(*),
+       COALESCE(SUM(total_amount), 0),
+       COALESCE(SUM(tax_amount), 0),
+       SUM(CASE WHEN has_vat_error THEN 1 ELSE 0 END)
+FROM orders
+WHERE order_date IS NOT NULL
+GROUP BY shop_id, COALESCE(customer_country_code, ''), CAST(order_date AS DATE);
@@ -0,0 +1,29 @@
+-- =====================================================
+-- EU VAT Ease - Durable webhook inbox
+-- Version: 5.0.0
+-- Description: Shopify webhook payloads appended on receipt
+-- and drained by workers (FOR UPDATE SKIP LOCKED)
+-- =====================================================
+
+-- =====================================================
+-- TABLE: webhook_inbox
+-- One row per verified delivery. A row is PENDING until a
+-- worker processes it; available_at doubles as the claim
+-- lease and the retry schedule.
+-- =====================================================
+CREATE TABLE webhook_inbox (
+    id BIGSERIAL PRIMARY KEY,
+    shop_domain VARCHAR(255) NOT NULL,
+    topic VARCHAR(50) NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error TEXT,
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP
+);
+
+-- File d'attente : seules les lignes en attente sont indexées
+CREATE INDEX idx_webhook_inbox_pending ON webhook_inbox(available_at, id) WHERE status = 'PENDING';
+CREATE INDEX idx_webhook_inbox_processed ON webhook_inbox(processed_at) WHERE status = 'DONE';
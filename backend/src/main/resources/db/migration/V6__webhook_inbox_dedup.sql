@@ -0,0 +1,17 @@
+-- =====================================================
+-- EU VAT Ease - Webhook deduplication
+-- Version: 6.0.0
+-- Description: Shopify retries (same X-Shopify-Webhook-Id) and
+-- stale order deliveries (older updated_at) are not queued twice
+-- =====================================================
+
+ALTER TABLE webhook_inbox ADD COLUMN webhook_id VARCHAR(100);
+ALTER TABLE webhook_inbox ADD COLUMN order_id VARCHAR(50);
+ALTER TABLE webhook_inbox ADD COLUMN order_updated_at TIMESTAMP;
+
+-- Une livraison Shopify n'est enregistrée qu'une fois (les lignes sans identifiant ne sont pas concernées)
+CREATE UNIQUE INDEX uq_webhook_inbox_webhook_id ON webhook_inbox(shop_domain, webhook_id);
+
+-- Dernière version reçue d'une commande
+CREATE INDEX idx_webhook_inbox_order_version ON webhook_inbox(shop_domain, order_id, order_updated_at)
+    WHERE order_id IS NOT NULL;
@@ -0,0 +1,9 @@
+-- =====================================================
+-- EU VAT Ease - VIES retry claiming
+-- Version: 7.0.0
+-- Description: Validations awaiting a VIES retry are claimed
+-- by due date (FOR UPDATE SKIP LOCKED) from every instance
+-- =====================================================
+
+CREATE INDEX idx_vat_validations_retry ON vat_validations(next_retry_at)
+    WHERE validation_status = 'UNAVAILABLE';
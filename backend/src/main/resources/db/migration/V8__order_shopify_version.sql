@@ -0,0 +1,9 @@
+-- =====================================================
+-- EU VAT Ease - Order version
+-- Version: 8.0.0
+-- Description: Shopify updated_at of the last stored
+-- order payload, so an older delivery never overwrites
+-- a newer one
+-- =====================================================
+
+ALTER TABLE orders ADD COLUMN shopify_updated_at TIMESTAMP;
@@ -0,0 +1,91 @@
+package com.euvatease.repository;
+
+import com.euvatease.entity.OssReport;
+import com.euvatease.entity.OssReportLine;
+import com.euvatease.entity.Shop;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Les lignes de rapport OSS sont insérées par lots JDBC (identifiants de séquence pooled, hibernate.jdbc.batch_size)
+ * et non par un INSERT par ligne. Base H2 en mémoire, schéma généré depuis les entités.
+ */
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.auto_quote_keyword=true",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class OssReportLineRepositoryTest {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final int LINE_COUNT = 120;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OssReportLineRepository ossReportLineRepository;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Test
+    void saveAllInsertsReportLinesInJdbcBatches() {
+        Shop shop = entityManager.persist(Shop.builder()
+            .shopifyDomain("batch-test.myshopify.com")
+            .build());
+        OssReport report = entityManager.persist(OssReport.builder()
+            .shop(shop)
+            .year(2024)
+            .quarter(1)
+            .build());
+        entityManager.flush();
+
+        List<OssReportLine> lines = new ArrayList<>(LINE_COUNT);
+        for (int i = 0; i < LINE_COUNT; i++) {
+            lines.add(OssReportLine.builder()
+                .report(report)
+                .countryCode("DE")
+                .countryName("Allemagne")
+                .vatRate(new BigDecimal("19.00"))
+                .build());
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ossReportLineRepository.saveAll(lines);
+        entityManager.flush();
+
+        long batches = (LINE_COUNT + BATCH_SIZE - 1) / BATCH_SIZE;
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(LINE_COUNT);
+        // Un INSERT préparé par lot, plus un nextval par bloc de 50 identifiants (le premier bloc en coûte deux)
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(batches + batches + 1);
+    }
+}
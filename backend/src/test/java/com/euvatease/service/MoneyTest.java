@@ -0,0 +1,174 @@
+package com.euvatease.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Équivalence de {@link Money} avec le calcul {@link BigDecimal} d'origine ({@code setScale(2, HALF_UP)}),
+ * sur des entrées tirées au hasard (graine fixe) et sur les cas de repli NOT_REPRESENTABLE.
+ */
+class MoneyTest {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private static final int RUNS = 100_000;
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Instance fields
+    //~ ------------------------------------------------------------------------------------------------
+
+    private final Random random = new Random(20240101L);
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Test
+    void percentOfMatchesBigDecimalHalfUp() {
+        for (int i = 0; i < RUNS; i++) {
+            long cents = random.nextLong() % 1_000_000_000_000L;
+            long basisPoints = random.nextLong() % 1_000_000L;
+
+            BigDecimal expected = BigDecimal.valueOf(cents, 2)
+                .multiply(BigDecimal.valueOf(basisPoints, 2))
+                .divide(ONE_HUNDRED, 2, RoundingMode.HALF_UP);
+
+            assertThat(Money.toAmount(Money.percentOf(cents, basisPoints)))
+                .as("%d x %d", cents, basisPoints)
+                .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void percentOfRoundsHalfUpAwayFromZero() {
+        // 0.05 x 10 % = 0.005 → 0.01 ; symétrique pour les montants négatifs
+        assertThat(Money.percentOf(5, 1000)).isEqualTo(1);
+        assertThat(Money.percentOf(-5, 1000)).isEqualTo(-1);
+        assertThat(Money.percentOf(4, 1000)).isZero();
+        assertThat(Money.percentOf(-4, 1000)).isZero();
+    }
+
+    @Test
+    void sumMatchesBigDecimalSum() {
+        for (int i = 0; i < RUNS / 100; i++) {
+            Money.Sum left = new Money.Sum();
+            Money.Sum right = new Money.Sum();
+            BigDecimal expected = BigDecimal.ZERO;
+            boolean representable = true;
+
+            for (BigDecimal amount : randomAmounts(1 + random.nextInt(50))) {
+                (random.nextBoolean() ? left : right).add(amount);
+                if (amount != null) {
+                    expected = expected.add(amount);
+                    representable &= Money.toCents(amount) != Money.NOT_REPRESENTABLE;
+                }
+            }
+            left.add(right);
+
+            if (representable) {
+                assertThat(left.toAmount()).isEqualTo(expected.setScale(2, RoundingMode.HALF_UP));
+            } else {
+                assertThat(left.toAmount()).isEqualByComparingTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void toCentsMatchesSetScale() {
+        assertThat(Money.toCents(null)).isZero();
+        for (int i = 0; i < RUNS; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong() % 10_000_000_000L, random.nextInt(3));
+
+            assertThat(Money.toCents(amount))
+                .as("%s", amount)
+                .isEqualTo(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+            assertThat(Money.toAmount(Money.toCents(amount))).isEqualByComparingTo(amount);
+        }
+    }
+
+    @Test
+    void toCentsReportsNotRepresentableValues() {
+        assertThat(Money.toCents(new BigDecimal("1.005"))).isEqualTo(Money.NOT_REPRESENTABLE);
+        assertThat(Money.toCents(new BigDecimal("1.230"))).isEqualTo(Money.NOT_REPRESENTABLE);
+        assertThat(Money.toCents(new BigDecimal("1E+3"))).isEqualTo(Money.NOT_REPRESENTABLE);
+        assertThat(Money.toCents(new BigDecimal("12345678901234.00"))).isEqualTo(Money.NOT_REPRESENTABLE);
+        assertThat(Money.toCents(new BigDecimal(BigInteger.TEN.pow(30), 2))).isEqualTo(Money.NOT_REPRESENTABLE);
+        assertThat(Money.toBasisPoints(new BigDecimal("19.125"))).isEqualTo(Money.NOT_REPRESENTABLE);
+    }
+
+    @Test
+    void vatAmountMatchesBigDecimalIncludingFallback() {
+        for (int i = 0; i < RUNS; i++) {
+            BigDecimal amount = randomAmount();
+            BigDecimal rate = random.nextInt(10) == 0
+                ? BigDecimal.valueOf(random.nextInt(30_000), 3)
+                : BigDecimal.valueOf(random.nextInt(3_000), 2);
+
+            BigDecimal expected = amount.multiply(rate).divide(ONE_HUNDRED, 2, RoundingMode.HALF_UP);
+
+            assertThat(Money.vatAmount(amount, rate))
+                .as("%s x %s", amount, rate)
+                .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void vatCentsMatchesVatAmountOrReportsFallback() {
+        for (int i = 0; i < RUNS; i++) {
+            BigDecimal amount = randomAmount();
+            BigDecimal rate = BigDecimal.valueOf(random.nextInt(30_000), 2 + random.nextInt(2));
+
+            long vatCents = Money.vatCents(Money.toCents(amount), Money.toBasisPoints(rate));
+
+            if (Money.toCents(amount) == Money.NOT_REPRESENTABLE || Money.toBasisPoints(rate) == Money.NOT_REPRESENTABLE) {
+                assertThat(vatCents).as("%s x %s", amount, rate).isEqualTo(Money.NOT_REPRESENTABLE);
+            } else {
+                assertThat(Money.toAmount(vatCents)).as("%s x %s", amount, rate).isEqualTo(Money.vatAmount(amount, rate));
+            }
+        }
+    }
+
+    @Test
+    void exceedsRateToleranceMatchesBigDecimalDifference() {
+        BigDecimal tolerance = BigDecimal.valueOf(50, 2);
+        for (int i = 0; i < RUNS; i++) {
+            BigDecimal applied = BigDecimal.valueOf(random.nextInt(3_000), 2 + random.nextInt(2));
+            BigDecimal expected = BigDecimal.valueOf(random.nextInt(3_000), 2);
+
+            boolean exceeds = Money.exceedsRateTolerance(Money.toBasisPoints(applied), Money.toBasisPoints(expected),
+                applied, expected, 50);
+
+            assertThat(exceeds)
+                .as("%s vs %s", applied, expected)
+                .isEqualTo(applied.subtract(expected).abs().compareTo(tolerance) > 0);
+        }
+    }
+
+    /**
+     * Montant aléatoire ; environ un sur dix a plus de deux décimales (repli BigDecimal)
+     */
+    private BigDecimal randomAmount() {
+        int scale = random.nextInt(10) == 0 ? 3 + random.nextInt(2) : random.nextInt(3);
+        return BigDecimal.valueOf(random.nextLong() % 10_000_000_000L, scale);
+    }
+
+    private List<BigDecimal> randomAmounts(int count) {
+        List<BigDecimal> amounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            amounts.add(random.nextInt(20) == 0 ? null : randomAmount());
+        }
+        return amounts;
+    }
+}
@@ -0,0 +1,275 @@
+package com.euvatease.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Contrôle des numéros de TVA par {@link VatNumberParser} : numéros réels acceptés, clé faussée d'un chiffre rejetée,
+ * préfixe EL/GR, normalisation, et aucune forme acceptée hors des anciennes expressions VAT_PATTERNS.
+ */
+class VatNumberParserTest {
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Static fields/initializers
+    //~ ------------------------------------------------------------------------------------------------
+
+    private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    // Pays, numéro valide, même numéro avec un chiffre de la clé de contrôle modifié
+    private static final String[][] CHECKED_NUMBERS = {
+        {"AT", "ATU13585627", "ATU13585628"},
+        {"AT", "ATU10223006", "ATU10223007"},
+        {"AT", "ATU46080404", "ATU46080405"},
+        {"BE", "BE0403019261", "BE0403019262"},
+        {"BE", "BE0776091951", "BE0776091952"},
+        {"BE", "BE0202239951", "BE0202239952"},
+        {"DE", "DE136695976", "DE136695977"},
+        {"DE", "DE129273398", "DE129273399"},
+        {"DE", "DE811569869", "DE811569860"},
+        {"DK", "DK13585628", "DK13585629"},
+        {"DK", "DK88146328", "DK88146329"},
+        {"DK", "DK10150817", "DK10150818"},
+        {"EE", "EE100931558", "EE100931559"},
+        {"EE", "EE100207415", "EE100207416"},
+        {"EE", "EE100594102", "EE100594103"},
+        {"FI", "FI20774740", "FI20774741"},
+        {"FI", "FI09853608", "FI09853609"},
+        {"FI", "FI01120389", "FI01120380"},
+        {"FR", "FR40303265045", "FR40303265046"},
+        {"FR", "FR23334175221", "FR23334175222"},
+        {"FR", "FR00300076965", "FR00300076966"},
+        {"GR", "EL094259216", "EL094259217"},
+        {"GR", "GR094259216", "GR094259217"},
+        {"HR", "HR33392005961", "HR33392005962"},
+        {"HR", "HR24640993045", "HR24640993046"},
+        {"HR", "HR94577403194", "HR94577403195"},
+        {"HU", "HU12892312", "HU12892313"},
+        {"HU", "HU10597190", "HU10597191"},
+        {"IT", "IT00743110157", "IT00743110158"},
+        {"IT", "IT01640320360", "IT01640320361"},
+        {"IT", "IT00159560366", "IT00159560367"},
+        {"LU", "LU15027442", "LU15027443"},
+        {"LU", "LU10000356", "LU10000357"},
+        {"LU", "LU20165772", "LU20165773"},
+        // Numéros d'entreprise (modulo 11), puis d'entrepreneur individuel (modulo 97)
+        {"NL", "NL004495445B01", "NL004495446B01"},
+        {"NL", "NL808661863B01", "NL808661864B01"},
+        {"NL", "NL000099998B57", "NL000099998B58"},
+        {"PL", "PL8567346215", "PL8567346216"},
+        {"PL", "PL5260250995", "PL5260250996"},
+        {"PL", "PL7740001454", "PL7740001455"},
+        {"PT", "PT501964843", "PT501964844"},
+        {"PT", "PT980405319", "PT980405310"},
+        {"PT", "PT502757191", "PT502757192"},
+        {"RO", "RO18547290", "RO18547291"},
+        {"RO", "RO160796", "RO160797"},
+        // La clé de Luhn porte sur le numéro d'organisation, pas sur le suffixe d'établissement
+        {"SE", "SE123456789701", "SE123456789801"},
+        {"SE", "SE556036079301", "SE556036079401"},
+        {"SI", "SI50223054", "SI50223055"},
+        {"SI", "SI15012557", "SI15012558"},
+        {"SK", "SK2022749619", "SK2022749610"},
+        {"SK", "SK2020372640", "SK2020372641"},
+    };
+
+    // Expressions de ViesValidationService avant le parseur : aucune forme hors de celles-ci ne doit être acceptée
+    private static final Map<String, Pattern> LEGACY_PATTERNS = Map.ofEntries(
+        Map.entry("AT", Pattern.compile("^ATU[0-9]{8}$")),
+        Map.entry("BE", Pattern.compile("^BE[0-9]{10}$")),
+        Map.entry("BG", Pattern.compile("^BG[0-9]{9,10}$")),
+        Map.entry("HR", Pattern.compile("^HR[0-9]{11}$")),
+        Map.entry("CY", Pattern.compile("^CY[0-9]{8}[A-Z]$")),
+        Map.entry("CZ", Pattern.compile("^CZ[0-9]{8,10}$")),
+        Map.entry("DK", Pattern.compile("^DK[0-9]{8}$")),
+        Map.entry("EE", Pattern.compile("^EE[0-9]{9}$")),
+        Map.entry("FI", Pattern.compile("^FI[0-9]{8}$")),
+        Map.entry("FR", Pattern.compile("^FR[A-Z0-9]{2}[0-9]{9}$")),
+        Map.entry("DE", Pattern.compile("^DE[0-9]{9}$")),
+        Map.entry("GR", Pattern.compile("^(GR|EL)[0-9]{9}$")),
+        Map.entry("HU", Pattern.compile("^HU[0-9]{8}$")),
+        Map.entry("IE", Pattern.compile("^IE[0-9]{7}[A-Z]{1,2}$|^IE[0-9][A-Z][0-9]{5}[A-Z]$")),
+        Map.entry("IT", Pattern.compile("^IT[0-9]{11}$")),
+        Map.entry("LV", Pattern.compile("^LV[0-9]{11}$")),
+        Map.entry("LT", Pattern.compile("^LT[0-9]{9,12}$")),
+        Map.entry("LU", Pattern.compile("^LU[0-9]{8}$")),
+        Map.entry("MT", Pattern.compile("^MT[0-9]{8}$")),
+        Map.entry("NL", Pattern.compile("^NL[0-9]{9}B[0-9]{2}$")),
+        Map.entry("PL", Pattern.compile("^PL[0-9]{10}$")),
+        Map.entry("PT", Pattern.compile("^PT[0-9]{9}$")),
+        Map.entry("RO", Pattern.compile("^RO[0-9]{2,10}$")),
+        Map.entry("SK", Pattern.compile("^SK[0-9]{10}$")),
+        Map.entry("SI", Pattern.compile("^SI[0-9]{8}$")),
+        Map.entry("ES", Pattern.compile("^ES[A-Z0-9][0-9]{7}[A-Z0-9]$")),
+        Map.entry("SE", Pattern.compile("^SE[0-9]{12}$"))
+    );
+
+    // Pays sans clé de contrôle locale : un numéro de chaque forme admise
+    private static final String[][] UNCHECKED_NUMBERS = {
+        {"BG", "BG123456789"},
+        {"BG", "BG1234567890"},
+        {"CY", "CY12345678L"},
+        {"CZ", "CZ12345678"},
+        {"CZ", "CZ123456789"},
+        {"CZ", "CZ1234567890"},
+        {"ES", "ESA1234567B"},
+        {"ES", "ES12345678Z"},
+        {"IE", "IE1234567T"},
+        {"IE", "IE1234567TW"},
+        {"IE", "IE1A12345B"},
+        {"LT", "LT123456789"},
+        {"LT", "LT123456789012"},
+        {"LV", "LV12345678901"},
+        {"MT", "MT12345678"},
+    };
+
+    //~ ------------------------------------------------------------------------------------------------
+    //~ Methods
+    //~ ------------------------------------------------------------------------------------------------
+
+    @Test
+    void acceptsKnownValidNumbers() {
+        for (String[] row : CHECKED_NUMBERS) {
+            assertThat(VatNumberParser.isValid(row[1])).as(row[1]).isTrue();
+            assertThat(VatNumberParser.countryCode(row[1])).as(row[1]).isEqualTo(row[0]);
+        }
+    }
+
+    @Test
+    void rejectsNumbersWithOneDigitOff() {
+        for (String[] row : CHECKED_NUMBERS) {
+            assertThat(differingPositions(row[1], row[2])).as(row[2]).isEqualTo(1);
+            assertThat(VatNumberParser.isValid(row[2])).as(row[2]).isFalse();
+        }
+    }
+
+    @Test
+    void readsGreekNumbersUnderBothPrefixes() {
+        // EL est le préfixe VIES de la Grèce, GR son code ISO : même format, même clé, pays GR
+        assertThat(VatNumberParser.isValid("EL094259216")).isTrue();
+        assertThat(VatNumberParser.isValid("GR094259216")).isTrue();
+        assertThat(VatNumberParser.countryCode("EL094259216")).isEqualTo("GR");
+        assertThat(VatNumberParser.countryCode("GR094259216")).isEqualTo("GR");
+        assertThat(VatNumberParser.isValid(VatNumberParser.normalize("el 094 259 216"))).isTrue();
+        assertThat(VatNumberParser.isValid("EL94259216")).isFalse();
+        assertThat(VatNumberParser.countryCode("EX094259216")).isNull();
+    }
+
+    @Test
+    void normalizesSeparatorsAndCase() {
+        for (String[] row : CHECKED_NUMBERS) {
+            String number = row[1];
+            List<String> variants = List.of(
+                number.toLowerCase(Locale.ROOT),
+                number.substring(0, 2) + " " + number.substring(2),
+                spaced(number, " "),
+                spaced(number.toLowerCase(Locale.ROOT), "."),
+                spaced(number, "-"),
+                " " + number.substring(0, 2).toLowerCase(Locale.ROOT) + "/" + number.substring(2) + "\t");
+
+            for (String variant : variants) {
+                assertThat(VatNumberParser.normalize(variant)).as("'%s'", variant).isEqualTo(number);
+            }
+            // Déjà normalisé : la chaîne d'origine est rendue telle quelle
+            assertThat(VatNumberParser.normalize(number)).isSameAs(number);
+        }
+        assertThat(VatNumberParser.normalize(null)).isEmpty();
+        assertThat(VatNumberParser.normalize(" - ")).isEmpty();
+    }
+
+    @Test
+    void acceptedShapesMatchLegacyPatterns() {
+        for (String[] row : CHECKED_NUMBERS) {
+            Pattern legacy = LEGACY_PATTERNS.get(row[0]);
+            assertThat(legacy.matcher(row[1]).matches()).as(row[1]).isTrue();
+
+            // Voisins d'un numéro valide : ceux que le parseur accepte ont une forme déjà admise auparavant
+            for (String variant : singleEdits(row[1])) {
+                if (VatNumberParser.isValid(variant)) {
+                    assertThat(legacy.matcher(variant).matches()).as(variant).isTrue();
+                }
+            }
+        }
+
+        // Sans clé de contrôle, le parseur et l'ancienne expression acceptent exactement les mêmes numéros
+        for (String[] row : UNCHECKED_NUMBERS) {
+            Pattern legacy = LEGACY_PATTERNS.get(row[0]);
+            assertThat(VatNumberParser.isValid(row[1])).as(row[1]).isTrue();
+            for (String variant : singleEdits(row[1])) {
+                assertThat(VatNumberParser.isValid(variant))
+                    .as(variant)
+                    .isEqualTo(legacy.matcher(variant).matches());
+            }
+        }
+    }
+
+    @Test
+    void keepsEveryLegacyRomanianLength() {
+        // RO[0-9]{2,10} : pour chaque longueur, une clé rend le numéro valide
+        String digits = "185472901";
+        for (int length = 2; length <= 10; length++) {
+            String prefix = "RO" + digits.substring(0, length - 1);
+            int accepted = 0;
+            for (char key = '0'; key <= '9'; key++) {
+                if (VatNumberParser.isValid(prefix + key)) {
+                    accepted++;
+                }
+            }
+            assertThat(accepted).as(prefix).isEqualTo(1);
+        }
+        assertThat(VatNumberParser.isValid("RO1")).isFalse();
+        assertThat(VatNumberParser.isValid("RO18547290123")).isFalse();
+    }
+
+    private static int differingPositions(String left,
+                                          String right) {
+        assertThat(right).hasSameSizeAs(left);
+        int count = 0;
+        for (int i = 0; i < left.length(); i++) {
+            if (left.charAt(i) != right.charAt(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Substitution, suppression ou insertion d'un caractère alphanumérique dans le numéro hors préfixe
+     */
+    private static List<String> singleEdits(String number) {
+        List<String> edits = new ArrayList<>();
+        for (int i = 2; i <= number.length(); i++) {
+            for (char c : ALPHANUMERIC.toCharArray()) {
+                edits.add(number.substring(0, i) + c + number.substring(i));
+                if (i < number.length() && c != number.charAt(i)) {
+                    edits.add(number.substring(0, i) + c + number.substring(i + 1));
+                }
+            }
+            if (i < number.length()) {
+                edits.add(number.substring(0, i) + number.substring(i + 1));
+            }
+        }
+        return edits;
+    }
+
+    /**
+     * Numéro découpé en groupes de trois caractères
+     */
+    private static String spaced(String number,
+                                 String separator) {
+        StringBuilder spaced = new StringBuilder();
+        for (int i = 0; i < number.length(); i++) {
+            if (i > 0 && i % 3 == 0) {
+                spaced.append(separator);
+            }
+            spaced.append(number.charAt(i));
+        }
+        return spaced.toString();
+    }
+}